@@ -0,0 +1,124 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.osgi.spi.AttachableSupport;
+import org.jboss.osgi.spi.AttachmentKey;
+import org.jboss.osgi.spi.ConcurrentAttachable.AttachmentFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link AttachableSupport} under contention from concurrent readers and writers.
+ *
+ * The read and write groups share one attachable per group. The computeIfAbsent threads share the
+ * attachable of a {@link ComputeState}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AttachableSupportBenchmark {
+
+    private static final AttachmentKey<String> READ_KEY = AttachmentKey.create(String.class);
+    private static final AttachmentKey<Integer> WRITE_KEY = AttachmentKey.create(Integer.class);
+    private static final AttachmentKey<String> LAZY_KEY = AttachmentKey.create(String.class);
+    private static final AttachmentFactory<String> LAZY_FACTORY = new AttachmentFactory<String>() {
+        public String createAttachment(AttachmentKey<String> key) {
+            return "lazy";
+        }
+    };
+    private static final int COMPUTE_THREADS = 4;
+
+    private AttachableSupport attachable;
+    private Integer counter = Integer.valueOf(0);
+
+    @Setup
+    public void setup() {
+        attachable = new AttachableSupport();
+        attachable.putAttachment(READ_KEY, "value");
+        attachable.putAttachment(WRITE_KEY, counter);
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(3)
+    public String readMostlyGet() {
+        return attachable.getAttachment(READ_KEY);
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public Integer readMostlyPut() {
+        return attachable.putAttachment(WRITE_KEY, counter);
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(4)
+    public Integer writeHeavyPut() {
+        return attachable.putAttachment(WRITE_KEY, counter);
+    }
+
+    @Benchmark
+    @Threads(COMPUTE_THREADS)
+    public String computeIfAbsent(ComputeState state) {
+        return state.next().computeAttachmentIfAbsent(LAZY_KEY, LAZY_FACTORY);
+    }
+
+    /**
+     * The attachable shared by the computeIfAbsent threads. It is replaced once per round of invocations,
+     * so that the threads race to compute an absent attachment on the same attachable.
+     */
+    @State(Scope.Benchmark)
+    public static class ComputeState {
+
+        private final AtomicLong invocations = new AtomicLong();
+        private volatile AttachableSupport attachable = new AttachableSupport();
+
+        AttachableSupport next() {
+            if (invocations.incrementAndGet() % COMPUTE_THREADS == 0)
+                attachable = new AttachableSupport();
+            return attachable;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.jboss.osgi.spi.BundleInfo;
+import org.jboss.osgi.spi.BundleInfoCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.BundleException;
+
+/**
+ * Benchmarks the creation of a {@link BundleInfo} for bundle archives with a varying number of entries.
+ *
+ * The archives are generated with a fixed seed, so that every run measures the same content.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BundleInfoBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int entries;
+
+    private File workDir;
+    private URL archiveURL;
+    private BundleInfoCache cache;
+
+    @Setup
+    public void setup() throws IOException, BundleException {
+        workDir = File.createTempFile("bundleinfo-", "");
+        workDir.delete();
+        workDir.mkdirs();
+
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Bundle-ManifestVersion", "2");
+        attributes.putValue("Bundle-SymbolicName", "org.acme.benchmark");
+        attributes.putValue("Bundle-Version", "1.0.0");
+        attributes.putValue("Export-Package", "org.acme.benchmark.api;version=1.0.0");
+        attributes.putValue("Import-Package", "org.osgi.framework;version=\"[1.5,2.0)\"");
+
+        File archive = new File(workDir, "bundle-" + entries + ".jar");
+        JarOutputStream output = new JarOutputStream(new FileOutputStream(archive), manifest);
+        try {
+            Random random = new Random(entries);
+            byte[] payload = new byte[1024];
+            for (int i = 0; i < entries; i++) {
+                output.putNextEntry(new JarEntry("org/acme/benchmark/pkg" + (i % 10) + "/Class" + i + ".class"));
+                random.nextBytes(payload);
+                output.write(payload);
+                output.closeEntry();
+            }
+        } finally {
+            output.close();
+        }
+        archiveURL = archive.toURI().toURL();
+
+        cache = new BundleInfoCache(new File(workDir, "cache"));
+        cache.createBundleInfo(archiveURL).close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        cache.clear();
+        deleteRecursive(workDir);
+    }
+
+    @Benchmark
+    public BundleInfo createBundleInfo() throws BundleException {
+        BundleInfo info = BundleInfo.createBundleInfo(archiveURL);
+        info.close();
+        return info;
+    }
+
+    @Benchmark
+    public BundleInfo createLazyBundleInfo() throws BundleException {
+        return BundleInfo.createLazyBundleInfo(archiveURL);
+    }
+
+    @Benchmark
+    public BundleInfo createCachedBundleInfo() throws BundleException {
+        return cache.createBundleInfo(archiveURL);
+    }
+
+    private static void deleteRecursive(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursive(child);
+            }
+        }
+        file.delete();
+    }
+}
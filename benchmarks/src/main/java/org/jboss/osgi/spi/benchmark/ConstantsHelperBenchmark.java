@@ -0,0 +1,94 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.osgi.spi.ConstantsHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.ServiceEvent;
+
+/**
+ * Benchmarks the {@link ConstantsHelper} formatting of bundle states and event types.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConstantsHelperBenchmark {
+
+    private final int[] bundleEvents = { BundleEvent.INSTALLED, BundleEvent.RESOLVED, BundleEvent.STARTING, BundleEvent.STARTED,
+            BundleEvent.STOPPING, BundleEvent.STOPPED, BundleEvent.UNRESOLVED, BundleEvent.UNINSTALLED };
+    private final int[] serviceEvents = { ServiceEvent.REGISTERED, ServiceEvent.MODIFIED, ServiceEvent.MODIFIED_ENDMATCH, ServiceEvent.UNREGISTERING };
+    private final int[] frameworkEvents = { FrameworkEvent.STARTED, FrameworkEvent.INFO, FrameworkEvent.WARNING, FrameworkEvent.WAIT_TIMEDOUT };
+    private final int[] bundleStates = { Bundle.INSTALLED, Bundle.RESOLVED, Bundle.STARTING, Bundle.ACTIVE };
+
+    @Benchmark
+    public void bundleEvent(Blackhole blackhole) {
+        for (int type : bundleEvents) {
+            blackhole.consume(ConstantsHelper.bundleEvent(type));
+        }
+    }
+
+    @Benchmark
+    public void serviceEvent(Blackhole blackhole) {
+        for (int type : serviceEvents) {
+            blackhole.consume(ConstantsHelper.serviceEvent(type));
+        }
+    }
+
+    @Benchmark
+    public void frameworkEvent(Blackhole blackhole) {
+        for (int type : frameworkEvents) {
+            blackhole.consume(ConstantsHelper.frameworkEvent(type));
+        }
+    }
+
+    @Benchmark
+    public void bundleState(Blackhole blackhole) {
+        for (int state : bundleStates) {
+            blackhole.consume(ConstantsHelper.bundleState(state));
+        }
+    }
+
+    @Benchmark
+    public String unknownEvent() {
+        return ConstantsHelper.bundleEvent(3);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.benchmark;
+
+import java.io.File;
+
+import org.jboss.osgi.spi.util.StringPropertyReplacer.PropertyProvider;
+
+/**
+ * The character loop that {@link org.jboss.osgi.spi.util.StringPropertyReplacer} used before
+ * templates were compiled and cached, kept as the baseline for {@link StringPropertyReplacerBenchmark}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+final class LegacyStringPropertyReplacer {
+
+    private static final int NORMAL = 0;
+    private static final int SEEN_DOLLAR = 1;
+    private static final int IN_BRACKET = 2;
+
+    private LegacyStringPropertyReplacer() {
+    }
+
+    static String replaceProperties(final String string, final PropertyProvider provider) {
+        final char[] chars = string.toCharArray();
+        StringBuffer buffer = new StringBuffer();
+        boolean properties = false;
+        int state = NORMAL;
+        int start = 0;
+        for (int i = 0; i < chars.length; ++i) {
+            char c = chars[i];
+            if (c == '$' && state != IN_BRACKET)
+                state = SEEN_DOLLAR;
+            else if (c == '{' && state == SEEN_DOLLAR) {
+                buffer.append(string.substring(start, i - 1));
+                state = IN_BRACKET;
+                start = i - 1;
+            } else if (state == SEEN_DOLLAR)
+                state = NORMAL;
+            else if (c == '}' && state == IN_BRACKET) {
+                if (start + 2 == i) {
+                    buffer.append("${}");
+                } else {
+                    String value = null;
+                    String key = string.substring(start + 2, i);
+                    if ("/".equals(key)) {
+                        value = File.separator;
+                    } else if (":".equals(key)) {
+                        value = File.pathSeparator;
+                    } else {
+                        value = provider.getProperty(key);
+                        if (value == null) {
+                            int colon = key.indexOf(':');
+                            if (colon > 0) {
+                                String realKey = key.substring(0, colon);
+                                value = provider.getProperty(key);
+                                if (value == null) {
+                                    value = resolveCompositeKey(realKey, provider);
+                                    if (value == null)
+                                        value = key.substring(colon + 1);
+                                }
+                            } else {
+                                value = resolveCompositeKey(key, provider);
+                            }
+                        }
+                    }
+                    if (value != null) {
+                        properties = true;
+                        buffer.append(value);
+                    } else {
+                        buffer.append("${");
+                        buffer.append(key);
+                        buffer.append('}');
+                    }
+                }
+                start = i + 1;
+                state = NORMAL;
+            }
+        }
+        if (properties == false)
+            return string;
+        if (start != chars.length)
+            buffer.append(string.substring(start, chars.length));
+        return buffer.toString();
+    }
+
+    private static String resolveCompositeKey(String key, PropertyProvider provider) {
+        String value = null;
+        int comma = key.indexOf(',');
+        if (comma > -1) {
+            if (comma > 0)
+                value = provider.getProperty(key.substring(0, comma));
+            if (value == null && comma < key.length() - 1)
+                value = provider.getProperty(key.substring(comma + 1));
+        }
+        return value;
+    }
+}
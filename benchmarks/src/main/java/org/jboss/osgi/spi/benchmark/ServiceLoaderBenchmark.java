@@ -0,0 +1,76 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.osgi.spi.util.ServiceLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link ServiceLoader#loadServices(Class)} with a warm provider cache and after invalidation.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ServiceLoaderBenchmark {
+
+    public interface BenchmarkService {
+    }
+
+    public static class FirstService implements BenchmarkService {
+    }
+
+    public static class SecondService implements BenchmarkService {
+    }
+
+    @Benchmark
+    public List<BenchmarkService> loadServices() {
+        return ServiceLoader.loadServices(BenchmarkService.class);
+    }
+
+    @Benchmark
+    public BenchmarkService loadService() {
+        return ServiceLoader.loadService(BenchmarkService.class);
+    }
+
+    @Benchmark
+    public List<BenchmarkService> loadServicesUncached() {
+        ServiceLoader.invalidate(BenchmarkService.class.getClassLoader());
+        return ServiceLoader.loadServices(BenchmarkService.class);
+    }
+}
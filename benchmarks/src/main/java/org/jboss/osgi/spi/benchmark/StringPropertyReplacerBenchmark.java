@@ -0,0 +1,107 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.osgi.spi.util.StringPropertyReplacer;
+import org.jboss.osgi.spi.util.StringPropertyReplacer.PropertyProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link StringPropertyReplacer#replaceProperties(String, PropertyProvider)} for
+ * typical bootstrap property values with and without property references. The legacy* variants
+ * run the former character loop on the same input as the baseline.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class StringPropertyReplacerBenchmark {
+
+    private PropertyProvider provider;
+    private String plainValue;
+    private String placeholderValue;
+    private String defaultValue;
+
+    @Setup
+    public void setup() {
+        final Map<String, String> props = new HashMap<String, String>();
+        props.put("test.archive.directory", "/opt/jboss/target/test-libs");
+        props.put("jboss.osgi.home", "/opt/jboss");
+        provider = new PropertyProvider() {
+            @Override
+            public String getProperty(String key) {
+                return props.get(key);
+            }
+        };
+        plainValue = "org.jboss.osgi.framework.storage.clean=onFirstInit,org.osgi.framework.system.packages.extra=javax.inject";
+        placeholderValue = "file://${test.archive.directory}/bundles/org.apache.felix.log.jar";
+        defaultValue = "${jboss.osgi.home}/data/${jboss.osgi.storage:osgi-store}";
+    }
+
+    @Benchmark
+    public String plainValue() {
+        return StringPropertyReplacer.replaceProperties(plainValue, provider);
+    }
+
+    @Benchmark
+    public String placeholderValue() {
+        return StringPropertyReplacer.replaceProperties(placeholderValue, provider);
+    }
+
+    @Benchmark
+    public String defaultValue() {
+        return StringPropertyReplacer.replaceProperties(defaultValue, provider);
+    }
+
+    @Benchmark
+    public String legacyPlainValue() {
+        return LegacyStringPropertyReplacer.replaceProperties(plainValue, provider);
+    }
+
+    @Benchmark
+    public String legacyPlaceholderValue() {
+        return LegacyStringPropertyReplacer.replaceProperties(placeholderValue, provider);
+    }
+
+    @Benchmark
+    public String legacyDefaultValue() {
+        return LegacyStringPropertyReplacer.replaceProperties(defaultValue, provider);
+    }
+}
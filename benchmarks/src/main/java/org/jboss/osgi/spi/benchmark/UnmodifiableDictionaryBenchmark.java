@@ -0,0 +1,100 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.benchmark;
+
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.osgi.spi.util.UnmodifiableDictionary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the construction of an {@link UnmodifiableDictionary} and lookups in it.
+ *
+ * The keys resemble bundle headers and service properties.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class UnmodifiableDictionaryBenchmark {
+
+    @Param({ "8", "64" })
+    public int size;
+
+    private Hashtable<String, String> source;
+    private UnmodifiableDictionary<String, String> dictionary;
+    private String hitKey;
+    private String missKey;
+
+    @Setup
+    public void setup() {
+        source = new Hashtable<String, String>();
+        for (int i = 0; i < size; i++) {
+            source.put("Bundle-Header-" + i, "value-" + i);
+        }
+        dictionary = new UnmodifiableDictionary<String, String>(source);
+        // Use distinct instances, so that lookups cannot short-circuit on identity
+        hitKey = new String("Bundle-Header-" + (size / 2));
+        missKey = new String("Bundle-Header-Missing");
+    }
+
+    @Benchmark
+    public UnmodifiableDictionary<String, String> construct() {
+        return new UnmodifiableDictionary<String, String>(source);
+    }
+
+    @Benchmark
+    public UnmodifiableDictionary<String, String> wrap() {
+        return UnmodifiableDictionary.wrap(dictionary);
+    }
+
+    @Benchmark
+    public String getHit() {
+        return dictionary.get(hitKey);
+    }
+
+    @Benchmark
+    public String getMiss() {
+        return dictionary.get(missKey);
+    }
+
+    @Benchmark
+    public String hashtableGetHit() {
+        return source.get(hitKey);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.jfr;
+
+import org.jboss.osgi.spi.SPIEvents;
+import org.jboss.osgi.spi.SPIEvents.Type;
+
+/**
+ * An {@link SPIEvents.Recorder} that commits every operation as a Flight Recorder event.
+ *
+ * Enable it with the system property {@link SPIEvents#PROP_EVENT_RECORDER}, or programmatically
+ *
+ * <pre>
+ * SPIEvents.setRecorder(new FlightRecorderEventRecorder());
+ * </pre>
+ *
+ * Without a recording that enables the event, the event is discarded before its fields are set. The event is
+ * committed when the operation has completed, see {@link SPIOperationEvent} for its timing fields.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class FlightRecorderEventRecorder implements SPIEvents.Recorder {
+
+    @Override
+    public void record(Type type, long startNanos, long durationNanos, String location, String symbolicName, boolean success) {
+        SPIOperationEvent event = new SPIOperationEvent();
+        if (event.isEnabled() == false)
+            return;
+
+        event.operation = type.name();
+        event.operationDuration = durationNanos;
+        event.location = location;
+        event.symbolicName = symbolicName;
+        event.success = success;
+        event.commit();
+    }
+}
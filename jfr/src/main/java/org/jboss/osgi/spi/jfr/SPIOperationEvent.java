@@ -0,0 +1,66 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A completed SPI operation.
+ *
+ * The recorder only learns about an operation after it has completed, so the event is created and committed at the end
+ * of the operation. The start time and duration that Flight Recorder assigns to the event therefore only cover the
+ * commit. Use {@link #operationDuration} for the duration of the operation, its start is that much earlier than the
+ * event time.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+@Name("org.jboss.osgi.spi.Operation")
+@Label("OSGi SPI Operation")
+@Category({ "JBoss OSGi", "SPI" })
+@Description("Bundle info creation, manifest loading, bundle install, start and stop, and service lookups")
+@StackTrace(false)
+class SPIOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long operationDuration;
+
+    @Label("Location")
+    @Description("The bundle location or the service name")
+    String location;
+
+    @Label("Symbolic Name")
+    String symbolicName;
+
+    @Label("Success")
+    boolean success;
+}
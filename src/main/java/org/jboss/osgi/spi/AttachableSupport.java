@@ -19,48 +19,230 @@
  */
 package org.jboss.osgi.spi;
 
-import java.util.HashMap;
-import java.util.Map;
+import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 
 /**
- * An implementation of {@link Attachable}.
+ * An implementation of {@link ConcurrentAttachable}.
+ *
+ * The attachments of the first {@link #DENSE_KEYS} keys are held in an immutable array that is indexed by
+ * {@link AttachmentKey} and replaced atomically on every modification. The array only grows as far as the
+ * highest of these key indices used. Attachments of keys with a higher index are held in a concurrent map
+ * that is created on first use, so the per attachable footprint stays bounded however many keys exist.
+ * Reads never block, modifications do not take a lock and retry when they race with another modification.
+ *
+ * Attachments are retained according to the {@link AttachmentKey.Retention} of their key. A read that finds
+ * a released attachment clears its slot. Only modifications of attachments of a
+ * {@link AttachmentKey.Retention#BOUNDED} key synchronize on that key.
  *
  * @author thomas.diesler@jboss.com
  * @since 02-Jul-2010
  */
-public class AttachableSupport implements Attachable {
+public class AttachableSupport implements ConcurrentAttachable {
+
+    /** The number of key indices that are stored in the array */
+    static final int DENSE_KEYS = 64;
+
+    private static final Object[] NO_ATTACHMENTS = new Object[0];
+
+    private static final AtomicReferenceFieldUpdater<AttachableSupport, Object[]> attachmentsUpdater = AtomicReferenceFieldUpdater.newUpdater(AttachableSupport.class, Object[].class, "attachments");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AttachableSupport, ConcurrentMap> sparseUpdater = AtomicReferenceFieldUpdater.newUpdater(AttachableSupport.class, ConcurrentMap.class, "sparse");
 
-    private Map<AttachmentKey<?>, Object> attachments;
+    private volatile Object[] attachments = NO_ATTACHMENTS;
+    private volatile ConcurrentMap<AttachmentKey<?>, Object> sparse;
 
     @Override
-    public synchronized <T> T putAttachment(AttachmentKey<T> clazz, T value) {
-        if (attachments == null)
-            attachments = new HashMap<AttachmentKey<?>, Object>();
+    public <T> T putAttachment(AttachmentKey<T> key, T value) {
+        if (key == null)
+            throw MESSAGES.illegalArgumentNull("key");
+        if (value == null)
+            return removeAttachment(key);
 
-        @SuppressWarnings("unchecked")
-        T result = (T) attachments.get(clazz);
-        attachments.put(clazz, value);
-        return result;
+        Object stored = key.wrap(value);
+        while (true) {
+            Object previous = load(key);
+            if (compareAndSwap(key, previous, stored)) {
+                key.detached(previous);
+                key.attached(stored);
+                return cast(key.unwrap(previous));
+            }
+        }
     }
 
     @Override
-    public synchronized <T> T getAttachment(AttachmentKey<T> clazz) {
-        if (attachments == null)
-            return null;
+    public <T> T putAttachmentIfAbsent(AttachmentKey<T> key, T value) {
+        if (key == null)
+            throw MESSAGES.illegalArgumentNull("key");
+        if (value == null)
+            throw MESSAGES.illegalArgumentNull("value");
 
-        @SuppressWarnings("unchecked")
-        T result = (T) attachments.get(clazz);
-        return result;
+        Object stored = key.wrap(value);
+        while (true) {
+            Object previous = load(key);
+            Object existing = key.unwrap(previous);
+            if (existing != null)
+                return cast(existing);
+
+            if (compareAndSwap(key, previous, stored)) {
+                key.detached(previous);
+                key.attached(stored);
+                return null;
+            }
+        }
     }
 
     @Override
-    public synchronized <T> T removeAttachment(AttachmentKey<T> clazz) {
-        if (attachments == null)
+    public <T> T computeAttachmentIfAbsent(AttachmentKey<T> key, AttachmentFactory<T> factory) {
+        if (key == null)
+            throw MESSAGES.illegalArgumentNull("key");
+        if (factory == null)
+            throw MESSAGES.illegalArgumentNull("factory");
+
+        T existing = getAttachment(key);
+        if (existing != null)
+            return existing;
+
+        T value = factory.createAttachment(key);
+        if (value == null)
             return null;
 
-        @SuppressWarnings("unchecked")
-        T result = (T) attachments.remove(clazz);
+        existing = putAttachmentIfAbsent(key, value);
+        return existing != null ? existing : value;
+    }
+
+    @Override
+    public <T> T replaceAttachment(AttachmentKey<T> key, T value) {
+        if (key == null)
+            throw MESSAGES.illegalArgumentNull("key");
+        if (value == null)
+            throw MESSAGES.illegalArgumentNull("value");
+
+        Object stored = key.wrap(value);
+        while (true) {
+            Object previous = load(key);
+            Object existing = key.unwrap(previous);
+            if (existing == null)
+                return null;
+
+            if (compareAndSwap(key, previous, stored)) {
+                key.detached(previous);
+                key.attached(stored);
+                return cast(existing);
+            }
+        }
+    }
+
+    @Override
+    public <T> boolean replaceAttachment(AttachmentKey<T> key, T expected, T value) {
+        if (key == null)
+            throw MESSAGES.illegalArgumentNull("key");
+        if (expected == null)
+            throw MESSAGES.illegalArgumentNull("expected");
+        if (value == null)
+            throw MESSAGES.illegalArgumentNull("value");
+
+        Object stored = key.wrap(value);
+        while (true) {
+            Object previous = load(key);
+            if (expected.equals(key.unwrap(previous)) == false)
+                return false;
+
+            if (compareAndSwap(key, previous, stored)) {
+                key.detached(previous);
+                key.attached(stored);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public <T> T getAttachment(AttachmentKey<T> key) {
+        if (key == null)
+            throw MESSAGES.illegalArgumentNull("key");
+
+        Object stored = load(key);
+        Object value = key.unwrap(stored);
+
+        // Clear the slot of a released attachment
+        if (value == null && stored != null && compareAndSwap(key, stored, null))
+            key.detached(stored);
+
+        return cast(value);
+    }
+
+    @Override
+    public <T> T removeAttachment(AttachmentKey<T> key) {
+        if (key == null)
+            throw MESSAGES.illegalArgumentNull("key");
+
+        while (true) {
+            Object previous = load(key);
+            if (previous == null)
+                return null;
+
+            if (compareAndSwap(key, previous, null)) {
+                key.detached(previous);
+                return cast(key.unwrap(previous));
+            }
+        }
+    }
+
+    // Get the stored wrapper of a key
+    private Object load(AttachmentKey<?> key) {
+        int index = key.getIndex();
+        if (index < DENSE_KEYS) {
+            Object[] values = attachments;
+            return index < values.length ? values[index] : null;
+        }
+        ConcurrentMap<AttachmentKey<?>, Object> map = sparse;
+        return map != null ? map.get(key) : null;
+    }
+
+    // Replace the stored wrapper of a key if it is still the expected one, may fail spuriously
+    private boolean compareAndSwap(AttachmentKey<?> key, Object expected, Object updated) {
+        int index = key.getIndex();
+        if (index < DENSE_KEYS) {
+            Object[] current = attachments;
+            Object previous = index < current.length ? current[index] : null;
+            if (previous != expected)
+                return false;
+
+            return attachmentsUpdater.compareAndSet(this, current, with(current, index, updated));
+        }
+
+        ConcurrentMap<AttachmentKey<?>, Object> map = getSparseMap();
+        if (expected == null)
+            return updated == null || map.putIfAbsent(key, updated) == null;
+        if (updated == null)
+            return map.remove(key, expected);
+        return map.replace(key, expected, updated);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConcurrentMap<AttachmentKey<?>, Object> getSparseMap() {
+        ConcurrentMap<AttachmentKey<?>, Object> map = sparse;
+        if (map == null) {
+            sparseUpdater.compareAndSet(this, null, new ConcurrentHashMap<AttachmentKey<?>, Object>(4));
+            map = sparse;
+        }
+        return map;
+    }
+
+    // Copy the array with the given value, growing it as needed
+    private static Object[] with(Object[] values, int index, Object value) {
+        Object[] result = new Object[Math.max(values.length, index + 1)];
+        System.arraycopy(values, 0, result, 0, values.length);
+        result[index] = value;
         return result;
     }
-}
\ No newline at end of file
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+}
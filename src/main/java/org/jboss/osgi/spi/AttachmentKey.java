@@ -20,26 +20,229 @@
 
 package org.jboss.osgi.spi;
 
+import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An attachment key
  *
+ * Every key gets a dense index at creation, which {@link AttachableSupport} uses
+ * to store the attachment in an array. Indices are never reused, keys are meant to be created once
+ * and kept in constants. Attachments of keys beyond the array capacity are kept in a map.
+ *
+ * A key also declares how its attachments are retained. By default an attachment is strongly reachable
+ * from its attachable. Attachments of derived data that can be recreated may be held
+ * <ul>
+ * <li>{@link Retention#SOFT} - until the garbage collector needs the memory</li>
+ * <li>{@link Retention#WEAK} - until the value is no longer reachable otherwise</li>
+ * <li>{@link Retention#EXPIRING} - for a fixed time after being attached</li>
+ * <li>{@link Retention#BOUNDED} - while the value is among the recently used values of this key across all attachables</li>
+ * </ul>
+ * An attachment that has been released reads as null, {@link AttachableSupport} clears its slot on that read.
+ *
+ * The budget of a bounded key applies to that key only, every bounded key retains up to its own maxEntries values.
+ * Reads of bounded attachments do not lock, they only mark the value as used. When the budget is exceeded
+ * the values are released in the order they were attached, skipping values that were used since the last
+ * pass (second chance), which approximates least recently used.
+ *
  * @author thomas.diesler@jboss.com
  * @since 02-Jul-2010
  */
 public class AttachmentKey<T>  {
 
+    /**
+     * The retention policy of the attachments of a key
+     */
+    public enum Retention {
+        STRONG, SOFT, WEAK, EXPIRING, BOUNDED
+    }
+
+    private static final AtomicInteger nextIndex = new AtomicInteger();
+
     private final Class<T> type;
+    private final int index;
+    private final Retention retention;
+    private final long timeToLive;
+    private final int maxEntries;
+    // The retained bounded values in the order they were attached or given a second chance
+    private final Map<BoundedValue, Boolean> boundedValues;
 
     public static <T> AttachmentKey<T> create(Class<T> type) {
-        return new AttachmentKey<T>(type);
+        return new AttachmentKey<T>(type, Retention.STRONG, 0, 0);
     }
 
-    private AttachmentKey(Class<T> type) {
+    /**
+     * Create a key for softly reachable attachments
+     */
+    public static <T> AttachmentKey<T> createSoft(Class<T> type) {
+        return new AttachmentKey<T>(type, Retention.SOFT, 0, 0);
+    }
+
+    /**
+     * Create a key for weakly reachable attachments
+     */
+    public static <T> AttachmentKey<T> createWeak(Class<T> type) {
+        return new AttachmentKey<T>(type, Retention.WEAK, 0, 0);
+    }
+
+    /**
+     * Create a key for attachments that expire after the given time
+     */
+    public static <T> AttachmentKey<T> createExpiring(Class<T> type, long timeToLive, TimeUnit unit) {
+        if (timeToLive <= 0)
+            throw MESSAGES.illegalArgumentInvalidValue("timeToLive", timeToLive);
+        if (unit == null)
+            throw MESSAGES.illegalArgumentNull("unit");
+        return new AttachmentKey<T>(type, Retention.EXPIRING, unit.toNanos(timeToLive), 0);
+    }
+
+    /**
+     * Create a key that retains at most maxEntries attachments of this key across all attachables,
+     * releasing an attachment that was not used recently when the budget is exceeded.
+     * The budget is per key, it is not shared with other bounded keys.
+     */
+    public static <T> AttachmentKey<T> createBounded(Class<T> type, int maxEntries) {
+        if (maxEntries < 1)
+            throw MESSAGES.illegalArgumentInvalidValue("maxEntries", maxEntries);
+        return new AttachmentKey<T>(type, Retention.BOUNDED, 0, maxEntries);
+    }
+
+    private AttachmentKey(Class<T> type, Retention retention, long timeToLive, int maxEntries) {
         this.type = type;
+        this.index = nextIndex.getAndIncrement();
+        this.retention = retention;
+        this.timeToLive = timeToLive;
+        this.maxEntries = maxEntries;
+        this.boundedValues = retention == Retention.BOUNDED ? new LinkedHashMap<BoundedValue, Boolean>() : null;
     }
 
     public Class<T> getType() {
         return type;
     }
+
+    /**
+     * Get the retention policy of the attachments
+     */
+    public Retention getRetention() {
+        return retention;
+    }
+
+    /**
+     * Get the dense index of this key
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * Wrap a value according to the retention policy
+     */
+    Object wrap(Object value) {
+        switch (retention) {
+            case SOFT:
+                return new SoftReference<Object>(value);
+            case WEAK:
+                return new WeakReference<Object>(value);
+            case EXPIRING:
+                return new ExpiringValue(value, System.nanoTime() + timeToLive);
+            case BOUNDED:
+                return new BoundedValue(value);
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Get the value from a wrapper, or null if it has been released
+     */
+    Object unwrap(Object stored) {
+        if (stored == null || retention == Retention.STRONG)
+            return stored;
+
+        switch (retention) {
+            case SOFT:
+            case WEAK:
+                return ((Reference<?>) stored).get();
+            case EXPIRING:
+                ExpiringValue expiring = (ExpiringValue) stored;
+                return System.nanoTime() - expiring.expires < 0 ? expiring.value : null;
+            case BOUNDED:
+                BoundedValue bounded = (BoundedValue) stored;
+                Object value = bounded.value;
+                if (value != null && bounded.used == false)
+                    bounded.used = true;
+                return value;
+            default:
+                return stored;
+        }
+    }
+
+    /**
+     * Called when a wrapper has been attached
+     */
+    void attached(Object stored) {
+        if (retention == Retention.BOUNDED && stored != null) {
+            synchronized (boundedValues) {
+                boundedValues.put((BoundedValue) stored, Boolean.TRUE);
+                releaseBoundedValues((BoundedValue) stored);
+            }
+        }
+    }
+
+    /**
+     * Called when a wrapper has been replaced or removed
+     */
+    void detached(Object stored) {
+        if (retention == Retention.BOUNDED && stored != null) {
+            synchronized (boundedValues) {
+                boundedValues.remove(stored);
+            }
+        }
+    }
+
+    // Release the eldest values that were not used since the last pass, called with the lock held
+    private void releaseBoundedValues(BoundedValue attached) {
+        while (boundedValues.size() > maxEntries) {
+            Iterator<BoundedValue> iterator = boundedValues.keySet().iterator();
+            BoundedValue eldest = iterator.next();
+            iterator.remove();
+            if (eldest == attached) {
+                boundedValues.put(eldest, Boolean.TRUE);
+            } else if (eldest.used) {
+                eldest.used = false;
+                boundedValues.put(eldest, Boolean.TRUE);
+            } else {
+                eldest.value = null;
+            }
+        }
+    }
+
+    private static final class ExpiringValue {
+
+        private final Object value;
+        private final long expires;
+
+        ExpiringValue(Object value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
+    private static final class BoundedValue {
+
+        private volatile Object value;
+        private volatile boolean used;
+
+        BoundedValue(Object value) {
+            this.value = value;
+        }
+    }
 }
@@ -46,15 +46,21 @@ import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Map;
 import java.util.jar.Attributes;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 import org.jboss.osgi.metadata.OSGiMetaData;
 import org.jboss.osgi.metadata.OSGiMetaDataBuilder;
 import org.jboss.osgi.metadata.OSGiManifestBuilder;
+import org.jboss.osgi.spi.SPIEvents.Type;
+import org.jboss.osgi.spi.util.ManifestHeaderScanner;
 import org.jboss.osgi.vfs.AbstractVFS;
 import org.jboss.osgi.vfs.VFSUtils;
 import org.jboss.osgi.vfs.VirtualFile;
@@ -75,14 +81,21 @@ public class BundleInfo implements Serializable {
 
     private static final long serialVersionUID = -2363297020450715134L;
 
+    private static final String[] IDENTITY_HEADERS = new String[] { Constants.BUNDLE_NAME, Constants.BUNDLE_SYMBOLICNAME,
+            Constants.BUNDLE_VERSION, Constants.BUNDLE_MANIFESTVERSION };
+
     private final URL rootURL;
     private final String location;
     private final String symbolicName;
     private final Version bundleVersion;
     private final OSGiMetaData metadata;
 
-    private transient VirtualFile rootFile;
-    private transient Manifest manifest;
+    // Created on first access of a lazy, cached or deserialized bundle info
+    private volatile OSGiMetaData lazyMetadata;
+    private transient volatile VirtualFile rootFile;
+    private transient volatile Manifest manifest;
+    // The main attributes that the metadata of a cached bundle info is built from
+    private transient volatile Manifest cachedManifest;
 
     public static BundleInfo createBundleInfo(String location) throws BundleException {
         if (location == null)
@@ -92,26 +105,129 @@ public class BundleInfo implements Serializable {
         if (url == null)
             throw MESSAGES.illegalArgumentCannotObtainRealLocation(location);
 
-        return new BundleInfo(toVirtualFile(url), url.toExternalForm(), null);
+        return createBundleInfo(url);
     }
 
+    /**
+     * Create a bundle info for the given URL.
+     *
+     * If the system property {@link BundleInfoCache#PROP_BUNDLE_INFO_CACHE} names a directory, the metadata of file
+     * URLs is cached there and reused while the archive does not change.
+     */
     public static BundleInfo createBundleInfo(URL url) throws BundleException {
         if (url == null)
             throw MESSAGES.illegalArgumentNull("url");
 
-        return new BundleInfo(toVirtualFile(url), url.toExternalForm(), null);
+        BundleInfoCache cache = BundleInfoCache.getDefault();
+        if (cache != null)
+            return cache.createBundleInfo(url);
+
+        return createUncachedBundleInfo(url);
+    }
+
+    static BundleInfo createUncachedBundleInfo(URL url) throws BundleException {
+        return newBundleInfo(toVirtualFile(url), url.toExternalForm(), null);
+    }
+
+    /**
+     * Create a bundle info that only reads the identity headers from the manifest.
+     *
+     * The root virtual file, the full manifest and the OSGi metadata are created on first access.
+     * The root URL of such a bundle info is the given URL.
+     *
+     * @param url The URL of a bundle archive or an exploded bundle directory
+     * @throws BundleException if the manifest cannot be read or is not a valid OSGi manifest
+     */
+    public static BundleInfo createLazyBundleInfo(URL url) throws BundleException {
+        if (url == null)
+            throw MESSAGES.illegalArgumentNull("url");
+
+        long start = SPIEvents.begin();
+        BundleInfo info = null;
+        try {
+            Map<String, String> headers;
+            try {
+                headers = scanIdentityHeaders(url);
+            } catch (IOException ex) {
+                throw MESSAGES.bundleCannotGetManifest(ex, url);
+            }
+            if (isValidBundle(headers) == false)
+                throw MESSAGES.bundleCannotGetManifest(null, url);
+
+            String symbolicName = headers.get(Constants.BUNDLE_SYMBOLICNAME);
+            String version = headers.get(Constants.BUNDLE_VERSION);
+            info = new BundleInfo(url, symbolicName, version);
+            return info;
+        } finally {
+            SPIEvents.end(Type.BUNDLE_INFO, start, url, info != null ? info.symbolicName : null, info != null);
+        }
     }
 
     public static BundleInfo createBundleInfo(VirtualFile root) throws BundleException {
-        return new BundleInfo(root, null, null);
+        return newBundleInfo(root, null, null);
     }
 
     public static BundleInfo createBundleInfo(VirtualFile root, String location) throws BundleException {
-        return new BundleInfo(root, location, null);
+        return newBundleInfo(root, location, null);
     }
 
     public static BundleInfo createBundleInfo(VirtualFile root, String location, OSGiMetaData metadata) throws BundleException {
-        return new BundleInfo(root, location, metadata);
+        return newBundleInfo(root, location, metadata);
+    }
+
+    private static BundleInfo newBundleInfo(VirtualFile root, String location, OSGiMetaData metadata) throws BundleException {
+        long start = SPIEvents.begin();
+        BundleInfo info = null;
+        try {
+            info = new BundleInfo(root, location, metadata);
+            return info;
+        } finally {
+            Object eventLocation = info != null ? info.location : (location != null ? location : root);
+            SPIEvents.end(Type.BUNDLE_INFO, start, eventLocation, info != null ? info.symbolicName : null, info != null);
+        }
+    }
+
+    /**
+     * Create a bundle info from previously validated main attributes without opening the root.
+     *
+     * The OSGi metadata is built from the given main attributes on first access.
+     */
+    BundleInfo(URL rootURL, String location, String symbolicName, Version version, Manifest cachedManifest) {
+        if (rootURL == null)
+            throw MESSAGES.illegalArgumentNull("rootURL");
+        if (location == null)
+            throw MESSAGES.illegalArgumentNull("location");
+        if (version == null)
+            throw MESSAGES.illegalArgumentNull("version");
+        if (cachedManifest == null)
+            throw MESSAGES.illegalArgumentNull("cachedManifest");
+
+        this.rootURL = rootURL;
+        this.location = location;
+        this.metadata = null;
+        this.symbolicName = symbolicName;
+        this.bundleVersion = version;
+        this.cachedManifest = cachedManifest;
+    }
+
+    private BundleInfo(URL rootURL, String symbolicNameHeader, String versionHeader) throws BundleException {
+        this.rootURL = rootURL;
+        this.location = rootURL.toExternalForm();
+        this.metadata = null;
+
+        // Strip the directives and attributes from the symbolic name
+        if (symbolicNameHeader != null) {
+            int semicolon = symbolicNameHeader.indexOf(';');
+            if (semicolon >= 0)
+                symbolicNameHeader = symbolicNameHeader.substring(0, semicolon).trim();
+        }
+        symbolicName = symbolicNameHeader;
+
+        try {
+            bundleVersion = versionHeader != null ? Version.parseVersion(versionHeader) : Version.emptyVersion;
+        } catch (IllegalArgumentException ex) {
+            throw MESSAGES.bundleCannotGetManifest(ex, rootURL);
+        }
     }
 
     private BundleInfo(VirtualFile rootFile, String location, OSGiMetaData metadata) throws BundleException {
@@ -130,7 +246,7 @@ public class BundleInfo implements Serializable {
         // Initialize the metadata
         if (metadata == null) {
             try {
-                manifest = VFSUtils.getManifest(rootFile);
+                manifest = loadManifest(rootFile, rootURL);
                 if (manifest == null) {
                     throw MESSAGES.bundleCannotGetManifest(null, rootURL);
                 }
@@ -149,18 +265,68 @@ public class BundleInfo implements Serializable {
     /**
      * Validate manifest from the given virtual file.
      *
+     * This only streams the identity headers from the manifest, no {@link Manifest} is created.
+     *
      * @param virtualFile The virtualFile that is checked for a valid manifest
      * @return True if the virtualFile conatains a valid manifest
      */
     public static boolean isValidBundle(VirtualFile virtualFile) {
         try {
-            Manifest manifest = VFSUtils.getManifest(virtualFile);
-            return OSGiManifestBuilder.isValidBundleManifest(manifest);
+            Map<String, String> headers;
+            VirtualFile manifestFile = virtualFile.getChild(JarFile.MANIFEST_NAME);
+            if (manifestFile != null) {
+                InputStream input = manifestFile.openStream();
+                try {
+                    headers = ManifestHeaderScanner.scan(input, IDENTITY_HEADERS);
+                } finally {
+                    input.close();
+                }
+            } else if (virtualFile.isFile()) {
+                InputStream input = virtualFile.openStream();
+                try {
+                    headers = ManifestHeaderScanner.scanArchive(input, IDENTITY_HEADERS);
+                } finally {
+                    input.close();
+                }
+            } else {
+                headers = null;
+            }
+            return isValidBundle(headers);
         } catch (IOException e) {
             return false;
         }
     }
 
+    /**
+     * Validate the identity headers of the given bundle archive or exploded bundle directory.
+     *
+     * This only streams the identity headers from the manifest, no {@link Manifest} is created.
+     * A valid bundle has at least one identity header and an R4 bundle also has a symbolic name.
+     *
+     * @param file The file that is checked for a valid manifest
+     * @return True if the file contains a valid manifest
+     */
+    public static boolean isValidBundle(File file) {
+        try {
+            return isValidBundle(ManifestHeaderScanner.scan(file, IDENTITY_HEADERS));
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isValidBundle(Map<String, String> headers) {
+        if (headers == null)
+            return false;
+
+        try {
+            int manifestVersion = getBundleManifestVersion(headers);
+            String symbolicName = headers.get(Constants.BUNDLE_SYMBOLICNAME);
+            return manifestVersion == 1 || (manifestVersion == 2 && symbolicName != null && symbolicName.length() > 0);
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
     /**
      * Validate a given bundle manifest.
      *
@@ -193,16 +359,27 @@ public class BundleInfo implements Serializable {
         if (manifest == null)
             throw MESSAGES.illegalArgumentNull("manifest");
 
-        // At least one of these manifest headers must be there
-        // Note, in R3 and R4 there is no common mandatory header
         String bundleName = getManifestHeaderInternal(manifest, Constants.BUNDLE_NAME);
         String bundleSymbolicName = getManifestHeaderInternal(manifest, Constants.BUNDLE_SYMBOLICNAME);
         String bundleVersion = getManifestHeaderInternal(manifest, Constants.BUNDLE_VERSION);
+        String manifestVersion = getManifestHeaderInternal(manifest, Constants.BUNDLE_MANIFESTVERSION);
+        return getBundleManifestVersion(bundleName, bundleSymbolicName, bundleVersion, manifestVersion);
+    }
+
+    private static int getBundleManifestVersion(Map<String, String> headers) {
+        String bundleName = headers.get(Constants.BUNDLE_NAME);
+        String bundleSymbolicName = headers.get(Constants.BUNDLE_SYMBOLICNAME);
+        String bundleVersion = headers.get(Constants.BUNDLE_VERSION);
+        String manifestVersion = headers.get(Constants.BUNDLE_MANIFESTVERSION);
+        return getBundleManifestVersion(bundleName, bundleSymbolicName, bundleVersion, manifestVersion);
+    }
 
+    private static int getBundleManifestVersion(String bundleName, String bundleSymbolicName, String bundleVersion, String manifestVersion) {
+        // At least one of these manifest headers must be there
+        // Note, in R3 and R4 there is no common mandatory header
         if (bundleName == null && bundleSymbolicName == null && bundleVersion == null)
             return -1;
 
-        String manifestVersion = getManifestHeaderInternal(manifest, Constants.BUNDLE_MANIFESTVERSION);
         return manifestVersion != null ? Integer.parseInt(manifestVersion) : 1;
     }
 
@@ -225,17 +402,24 @@ public class BundleInfo implements Serializable {
      * Get the bundle root file
      */
     public VirtualFile getRoot() {
-        if (rootFile == null)
-            rootFile = toVirtualFile(rootURL);
-
-        return rootFile;
+        VirtualFile result = rootFile;
+        if (result == null) {
+            synchronized (this) {
+                result = rootFile;
+                if (result == null) {
+                    result = toVirtualFile(rootURL);
+                    rootFile = result;
+                }
+            }
+        }
+        return result;
     }
 
     /**
      * Get the bundle root url
      */
     public URL getRootURL() {
-        return toURL(getRoot());
+        return rootURL;
     }
 
     /**
@@ -256,26 +440,64 @@ public class BundleInfo implements Serializable {
      * Get the OSGi metadata
      */
     public OSGiMetaData getOSGiMetadata() {
-        return metadata;
+        if (metadata != null)
+            return metadata;
+
+        OSGiMetaData result = lazyMetadata;
+        if (result == null) {
+            synchronized (this) {
+                result = lazyMetadata;
+                if (result == null) {
+                    Manifest source = cachedManifest;
+                    result = OSGiMetaDataBuilder.load(source != null ? source : getManifest());
+                    try {
+                        OSGiMetaDataBuilder.validateMetadata(result);
+                    } catch (BundleException ex) {
+                        throw MESSAGES.illegalStateCannotLoadMetadata(ex, rootURL);
+                    }
+                    lazyMetadata = result;
+                }
+            }
+        }
+        return result;
     }
 
     /**
      * Closes the accociated resources.
      */
     public void close() {
-        if (rootFile != null)
-            VFSUtils.safeClose(rootFile);
+        VirtualFile root = rootFile;
+        if (root != null)
+            VFSUtils.safeClose(root);
     }
 
     public Manifest getManifest() {
-        if (manifest == null) {
-            try {
-                manifest = VFSUtils.getManifest(getRoot());
-            } catch (Exception ex) {
-                throw MESSAGES.illegalStateCannotGetManifest(ex, rootURL);
+        Manifest result = manifest;
+        if (result == null) {
+            synchronized (this) {
+                result = manifest;
+                if (result == null) {
+                    try {
+                        result = loadManifest(getRoot(), rootURL);
+                    } catch (Exception ex) {
+                        throw MESSAGES.illegalStateCannotGetManifest(ex, rootURL);
+                    }
+                    manifest = result;
+                }
             }
         }
-        return manifest;
+        return result;
+    }
+
+    private static Manifest loadManifest(VirtualFile root, URL rootURL) throws IOException {
+        long start = SPIEvents.begin();
+        Manifest result = null;
+        try {
+            result = VFSUtils.getManifest(root);
+            return result;
+        } finally {
+            SPIEvents.end(Type.MANIFEST_LOAD, start, rootURL, null, result != null);
+        }
     }
 
     private static VirtualFile toVirtualFile(URL url) {
@@ -286,6 +508,37 @@ public class BundleInfo implements Serializable {
         }
     }
 
+    private static Map<String, String> scanIdentityHeaders(URL url) throws IOException {
+        long start = SPIEvents.begin();
+        Map<String, String> result = null;
+        try {
+            result = scanIdentityHeadersInternal(url);
+            return result;
+        } finally {
+            SPIEvents.end(Type.MANIFEST_LOAD, start, url, null, result != null);
+        }
+    }
+
+    private static Map<String, String> scanIdentityHeadersInternal(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            File file;
+            try {
+                file = new File(url.toURI());
+            } catch (URISyntaxException ex) {
+                file = new File(url.getPath());
+            }
+            if (file.exists())
+                return ManifestHeaderScanner.scan(file, IDENTITY_HEADERS);
+        }
+
+        InputStream input = url.openStream();
+        try {
+            return ManifestHeaderScanner.scanArchive(input, IDENTITY_HEADERS);
+        } finally {
+            input.close();
+        }
+    }
+
     private static URL getRealLocation(String location) {
         // Try location as URL
         URL url = null;
@@ -0,0 +1,357 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi;
+
+import static org.jboss.osgi.spi.SPILogger.LOGGER;
+import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import org.jboss.osgi.metadata.OSGiMetaData;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Version;
+
+/**
+ * A persistent cache of the bundle metadata that is read by {@link BundleInfo}.
+ *
+ * The cache stores the symbolic name, the version and the main manifest attributes for
+ * archives given by a file URL. An entry is keyed by the bundle location and is only used
+ * while the archive still has the size and last modified time it had when the entry was
+ * written. A valid entry creates the bundle info without opening the archive. The
+ * {@link OSGiMetaData} is built from the cached attributes on first access only.
+ *
+ * Entries use a plain binary format of strings and numbers, no objects are deserialized.
+ * An entry that cannot be read is ignored and rewritten.
+ *
+ * Archives that are not given by a file URL are not cached.
+ *
+ * {@link BundleInfo#createBundleInfo(URL)} uses the cache in the directory that is given by
+ * the system property {@link #PROP_BUNDLE_INFO_CACHE}. The cache is off by default.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class BundleInfoCache {
+
+    /** Optional directory of the cache that is used by BundleInfo: org.jboss.osgi.spi.bundleInfoCache */
+    public static final String PROP_BUNDLE_INFO_CACHE = "org.jboss.osgi.spi.bundleInfoCache";
+
+    private static final String ENTRY_SUFFIX = ".metadata";
+    private static final int MAGIC = 0x4A424943;
+    private static final int VERSION = 2;
+
+    private static volatile BundleInfoCache defaultCache;
+
+    private final File cacheDir;
+
+    public BundleInfoCache(File cacheDir) {
+        if (cacheDir == null)
+            throw MESSAGES.illegalArgumentNull("cacheDir");
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Get the cache in the directory given by {@link #PROP_BUNDLE_INFO_CACHE}, or null if the property is not set
+     */
+    static BundleInfoCache getDefault() {
+        String path = SecurityActions.getSystemProperty(PROP_BUNDLE_INFO_CACHE, null);
+        if (path == null)
+            return null;
+
+        BundleInfoCache cache = defaultCache;
+        if (cache == null || cache.cacheDir.getPath().equals(path) == false) {
+            cache = new BundleInfoCache(new File(path));
+            defaultCache = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * Get the cache directory
+     */
+    public File getCacheDir() {
+        return cacheDir;
+    }
+
+    /**
+     * Create the bundle info for the given URL, using the cached metadata if the archive has not changed.
+     */
+    public BundleInfo createBundleInfo(URL url) throws BundleException {
+        if (url == null)
+            throw MESSAGES.illegalArgumentNull("url");
+
+        File file = toFile(url);
+        if (file == null)
+            return BundleInfo.createUncachedBundleInfo(url);
+
+        String location = url.toExternalForm();
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        File entryFile = getEntryFile(location);
+        CacheEntry entry = readEntry(entryFile);
+        if (entry != null && entry.matches(location, size, lastModified)) {
+            Version version = entry.getVersion();
+            Manifest manifest = entry.getManifest();
+            if (version != null && manifest != null) {
+                LOGGER.debugf("Using cached metadata for: %s", location);
+                return new BundleInfo(toRootURL(entry.rootSpec, url), location, entry.symbolicName, version, manifest);
+            }
+        }
+
+        BundleInfo info = BundleInfo.createUncachedBundleInfo(url);
+        Map<String, String> headers = new LinkedHashMap<String, String>();
+        for (Map.Entry<Object, Object> attr : info.getManifest().getMainAttributes().entrySet()) {
+            headers.put(attr.getKey().toString(), (String) attr.getValue());
+        }
+        String rootSpec = info.getRootURL().toExternalForm();
+        writeEntry(entryFile, new CacheEntry(location, size, lastModified, rootSpec, info.getSymbolicName(), info.getVersion().toString(), headers));
+        return info;
+    }
+
+    /**
+     * Remove the cached metadata for the given location
+     */
+    public void invalidate(String location) {
+        if (location == null)
+            throw MESSAGES.illegalArgumentNull("location");
+
+        File entryFile = getEntryFile(location);
+        if (entryFile.exists() && entryFile.delete() == false)
+            LOGGER.debugf("Cannot delete cache entry: %s", entryFile);
+    }
+
+    /**
+     * Remove all cached metadata
+     */
+    public void clear() {
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(ENTRY_SUFFIX) && file.delete() == false)
+                    LOGGER.debugf("Cannot delete cache entry: %s", file);
+            }
+        }
+    }
+
+    private File getEntryFile(String location) {
+        return new File(cacheDir, digest(location) + ENTRY_SUFFIX);
+    }
+
+    private CacheEntry readEntry(File entryFile) {
+        if (entryFile.isFile() == false)
+            return null;
+
+        long limit = entryFile.length();
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entryFile)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                    return null;
+                String location = readString(in, limit);
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                String rootSpec = readString(in, limit);
+                String symbolicName = in.readBoolean() ? readString(in, limit) : null;
+                String version = readString(in, limit);
+                Map<String, String> headers = new LinkedHashMap<String, String>();
+                for (int i = in.readInt(); i > 0; i--) {
+                    headers.put(readString(in, limit), readString(in, limit));
+                }
+                return new CacheEntry(location, size, lastModified, rootSpec, symbolicName, version, headers);
+            } finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot read cache entry: %s", entryFile);
+            return null;
+        }
+    }
+
+    private void writeEntry(File entryFile, CacheEntry entry) {
+        if (cacheDir.isDirectory() == false && cacheDir.mkdirs() == false) {
+            LOGGER.debugf("Cannot create cache directory: %s", cacheDir);
+            return;
+        }
+
+        // Write to a temp file first, so that readers never see a partial entry
+        File tmpFile = new File(cacheDir, entryFile.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, entry.location);
+                out.writeLong(entry.size);
+                out.writeLong(entry.lastModified);
+                writeString(out, entry.rootSpec);
+                out.writeBoolean(entry.symbolicName != null);
+                if (entry.symbolicName != null)
+                    writeString(out, entry.symbolicName);
+                writeString(out, entry.version);
+                out.writeInt(entry.headers.size());
+                for (Map.Entry<String, String> header : entry.headers.entrySet()) {
+                    writeString(out, header.getKey());
+                    writeString(out, header.getValue());
+                }
+            } finally {
+                out.close();
+            }
+            if (entryFile.exists())
+                entryFile.delete();
+            if (tmpFile.renameTo(entryFile) == false)
+                LOGGER.debugf("Cannot write cache entry: %s", entryFile);
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot write cache entry: %s", entryFile);
+        } finally {
+            if (tmpFile.exists())
+                tmpFile.delete();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, long limit) throws IOException {
+        // A corrupt length must not allocate more than the entry holds
+        int length = in.readInt();
+        if (length < 0 || length > limit)
+            throw new IOException("Invalid string length: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static File toFile(URL url) {
+        if ("file".equals(url.getProtocol()) == false)
+            return null;
+
+        try {
+            File file = new File(url.toURI());
+            return file.isFile() ? file : null;
+        } catch (URISyntaxException ex) {
+            return null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static URL toRootURL(String rootSpec, URL url) {
+        // The root URL may use a protocol that has no handler in this VM yet
+        try {
+            return new URL(rootSpec);
+        } catch (MalformedURLException ex) {
+            return url;
+        }
+    }
+
+    private static String digest(String location) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] bytes = md.digest(location.getBytes("UTF-8"));
+            StringBuilder builder = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            return Integer.toHexString(location.hashCode());
+        } catch (UnsupportedEncodingException ex) {
+            return Integer.toHexString(location.hashCode());
+        }
+    }
+
+    private static class CacheEntry {
+
+        private final String location;
+        private final long size;
+        private final long lastModified;
+        private final String rootSpec;
+        private final String symbolicName;
+        private final String version;
+        private final Map<String, String> headers;
+
+        CacheEntry(String location, long size, long lastModified, String rootSpec, String symbolicName, String version, Map<String, String> headers) {
+            this.location = location;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.rootSpec = rootSpec;
+            this.symbolicName = symbolicName;
+            this.version = version;
+            this.headers = headers;
+        }
+
+        boolean matches(String location, long size, long lastModified) {
+            return this.location.equals(location) && this.size == size && this.lastModified == lastModified;
+        }
+
+        /**
+         * Get the cached bundle version, or null if it is not valid
+         */
+        Version getVersion() {
+            try {
+                return Version.parseVersion(version);
+            } catch (IllegalArgumentException ex) {
+                LOGGER.debugf(ex, "Invalid cached metadata for: %s", location);
+                return null;
+            }
+        }
+
+        /**
+         * Get a manifest with the cached main attributes, or null if they are not valid
+         */
+        Manifest getManifest() {
+            try {
+                Manifest manifest = new Manifest();
+                Attributes attributes = manifest.getMainAttributes();
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    attributes.putValue(header.getKey(), header.getValue());
+                }
+                return manifest;
+            } catch (IllegalArgumentException ex) {
+                LOGGER.debugf(ex, "Invalid cached metadata for: %s", location);
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi;
+
+import static org.jboss.osgi.spi.SPILogger.LOGGER;
+import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.jar.JarFile;
+
+import org.osgi.framework.BundleException;
+
+/**
+ * Scans a directory tree for valid OSGi bundles.
+ *
+ * The directory tree is walked by the calling thread. Each candidate archive or exploded
+ * bundle directory is read by {@link BundleInfo#createLazyBundleInfo(URL)} on a bounded pool of
+ * worker threads, a candidate that is not a valid bundle is skipped. At most maxPending
+ * candidates are queued at any time, the walk blocks until a worker becomes available.
+ *
+ * Every directory is visited once by its canonical path, so that symbolic link cycles
+ * terminate the walk.
+ *
+ * Valid bundles are reported as lazy {@link BundleInfo} instances as soon as they are found.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class BundleScanner {
+
+    private final int parallelism;
+    private final int maxPending;
+
+    /**
+     * A handler that receives the bundles found by a scan.
+     *
+     * The handler is called concurrently from the worker threads.
+     */
+    public interface BundleHandler {
+
+        void bundleFound(BundleInfo info);
+    }
+
+    /**
+     * Create a scanner that uses one worker per available processor.
+     */
+    public BundleScanner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public BundleScanner(int parallelism) {
+        this(parallelism, parallelism * 4);
+    }
+
+    public BundleScanner(int parallelism, int maxPending) {
+        if (parallelism < 1)
+            throw MESSAGES.illegalArgumentInvalidValue("parallelism", parallelism);
+        if (maxPending < 1)
+            throw MESSAGES.illegalArgumentInvalidValue("maxPending", maxPending);
+        this.parallelism = parallelism;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Scan the given directory and collect the bundles found.
+     *
+     * @return The list of bundles in no particular order
+     */
+    public List<BundleInfo> scan(File dir) throws InterruptedException {
+        final List<BundleInfo> result = Collections.synchronizedList(new ArrayList<BundleInfo>());
+        scan(dir, new BundleHandler() {
+            @Override
+            public void bundleFound(BundleInfo info) {
+                result.add(info);
+            }
+        });
+        return new ArrayList<BundleInfo>(result);
+    }
+
+    /**
+     * Scan the given directory and pass every bundle found to the handler.
+     *
+     * This method returns when all candidates have been processed.
+     * The first runtime exception or error thrown by the handler is rethrown.
+     */
+    public void scan(File dir, final BundleHandler handler) throws InterruptedException {
+        if (dir == null)
+            throw MESSAGES.illegalArgumentNull("dir");
+        if (handler == null)
+            throw MESSAGES.illegalArgumentNull("handler");
+
+        final Semaphore pending = new Semaphore(maxPending);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ScannerThreadFactory());
+        try {
+            collectCandidates(dir, new HashSet<String>(), pending, executor, handler, failure);
+        } finally {
+            // Wait for the pending candidates
+            pending.acquireUninterruptibly(maxPending);
+            executor.shutdown();
+        }
+
+        Throwable th = failure.get();
+        if (th instanceof Error)
+            throw (Error) th;
+        if (th != null)
+            throw (RuntimeException) th;
+    }
+
+    private void collectCandidates(File dir, Set<String> visited, Semaphore pending, ExecutorService executor, BundleHandler handler,
+            AtomicReference<Throwable> failure) throws InterruptedException {
+        try {
+            if (visited.add(dir.getCanonicalPath()) == false)
+                return;
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot resolve directory: %s", dir);
+            return;
+        }
+
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+
+        for (File file : files) {
+            if (failure.get() != null)
+                return;
+
+            if (file.isDirectory()) {
+                if (new File(file, JarFile.MANIFEST_NAME).isFile()) {
+                    submit(file, pending, executor, handler, failure);
+                } else {
+                    collectCandidates(file, visited, pending, executor, handler, failure);
+                }
+            } else if (file.getName().endsWith(".jar")) {
+                submit(file, pending, executor, handler, failure);
+            }
+        }
+    }
+
+    private void submit(final File file, final Semaphore pending, ExecutorService executor, final BundleHandler handler,
+            final AtomicReference<Throwable> failure) throws InterruptedException {
+        pending.acquire();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    BundleInfo info = createBundleInfo(file);
+                    if (info != null)
+                        handler.bundleFound(info);
+                } catch (RuntimeException ex) {
+                    failure.compareAndSet(null, ex);
+                } catch (Error err) {
+                    failure.compareAndSet(null, err);
+                } finally {
+                    pending.release();
+                }
+            }
+        });
+    }
+
+    private BundleInfo createBundleInfo(File file) {
+        try {
+            URL url = file.toURI().toURL();
+            return BundleInfo.createLazyBundleInfo(url);
+        } catch (BundleException ex) {
+            LOGGER.debugf(ex, "Not a valid bundle: %s", file);
+            return null;
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot create bundle info for: %s", file);
+            return null;
+        } catch (RuntimeException ex) {
+            LOGGER.debugf(ex, "Cannot create bundle info for: %s", file);
+            return null;
+        }
+    }
+
+    private static class ScannerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable run) {
+            Thread thread = new Thread(run, "OSGi Bundle Scanner-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
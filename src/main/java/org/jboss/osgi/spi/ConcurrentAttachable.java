@@ -0,0 +1,74 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi;
+
+/**
+ * Adds atomic attachment operations to {@link Attachable}
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public interface ConcurrentAttachable extends Attachable {
+
+    /**
+     * Attach an object with this element if there is no attachment for the given key.
+     *
+     * @param key key for the attachment
+     * @return The existing attachment object or null if the given value was attached
+     */
+    <T> T putAttachmentIfAbsent(AttachmentKey<T> key, T value);
+
+    /**
+     * Get the attached object for a given key, or attach the object created by the given factory.
+     *
+     * The factory may be called even if another thread attaches an object concurrently,
+     * in which case the object attached first is returned.
+     *
+     * @param key key for the attachment
+     * @return The existing or newly attached object
+     */
+    <T> T computeAttachmentIfAbsent(AttachmentKey<T> key, AttachmentFactory<T> factory);
+
+    /**
+     * Replace the attached object for a given key, only if there is such an attachment.
+     *
+     * @param key key for the attachment
+     * @return The previously attachment object or null
+     */
+    <T> T replaceAttachment(AttachmentKey<T> key, T value);
+
+    /**
+     * Replace the attached object for a given key, only if it currently equals the expected object.
+     *
+     * @param key key for the attachment
+     * @return True if the attachment was replaced
+     */
+    <T> boolean replaceAttachment(AttachmentKey<T> key, T expected, T value);
+
+    /**
+     * Creates an attachment object on demand
+     */
+    interface AttachmentFactory<T> {
+
+        T createAttachment(AttachmentKey<T> key);
+    }
+}
@@ -50,98 +50,93 @@ import org.osgi.framework.ServiceEvent;
 /**
  * String representation for common OSGi Constants
  * 
+ * The bundle states and event types are single bit flags, they are decoded through tables indexed by bit position.
+ * 
  * @author thomas.diesler@jboss.com
  * @since 04-Mar-2009
  */
 public abstract class ConstantsHelper {
 
+    private static final String[] bundleStates = new String[32];
+    private static final String[] bundleEvents = new String[32];
+    private static final String[] serviceEvents = new String[32];
+    private static final String[] frameworkEvents = new String[32];
+    static {
+        put(bundleStates, Bundle.UNINSTALLED, "UNINSTALLED");
+        put(bundleStates, Bundle.INSTALLED, "INSTALLED");
+        put(bundleStates, Bundle.RESOLVED, "RESOLVED");
+        put(bundleStates, Bundle.STARTING, "STARTING");
+        put(bundleStates, Bundle.STOPPING, "STOPPING");
+        put(bundleStates, Bundle.ACTIVE, "ACTIVE");
+
+        put(bundleEvents, BundleEvent.INSTALLED, "INSTALLED");
+        put(bundleEvents, BundleEvent.LAZY_ACTIVATION, "LAZY_ACTIVATION");
+        put(bundleEvents, BundleEvent.RESOLVED, "RESOLVED");
+        put(bundleEvents, BundleEvent.STARTING, "STARTING");
+        put(bundleEvents, BundleEvent.STARTED, "STARTED");
+        put(bundleEvents, BundleEvent.STOPPING, "STOPPING");
+        put(bundleEvents, BundleEvent.STOPPED, "STOPPED");
+        put(bundleEvents, BundleEvent.UNINSTALLED, "UNINSTALLED");
+        put(bundleEvents, BundleEvent.UNRESOLVED, "UNRESOLVED");
+        put(bundleEvents, BundleEvent.UPDATED, "UPDATED");
+
+        put(serviceEvents, ServiceEvent.REGISTERED, "REGISTERED");
+        put(serviceEvents, ServiceEvent.UNREGISTERING, "UNREGISTERING");
+        put(serviceEvents, ServiceEvent.MODIFIED, "MODIFIED");
+        put(serviceEvents, ServiceEvent.MODIFIED_ENDMATCH, "MODIFIED_ENDMATCH");
+
+        put(frameworkEvents, FrameworkEvent.ERROR, "ERROR");
+        put(frameworkEvents, FrameworkEvent.INFO, "INFO");
+        put(frameworkEvents, FrameworkEvent.PACKAGES_REFRESHED, "PACKAGES_REFRESHED");
+        put(frameworkEvents, FrameworkEvent.STARTED, "STARTED");
+        put(frameworkEvents, FrameworkEvent.STARTLEVEL_CHANGED, "STARTLEVEL_CHANGED");
+        put(frameworkEvents, FrameworkEvent.STOPPED, "STOPPED");
+        put(frameworkEvents, FrameworkEvent.STOPPED_BOOTCLASSPATH_MODIFIED, "STOPPED_BOOTCLASSPATH_MODIFIED");
+        put(frameworkEvents, FrameworkEvent.STOPPED_UPDATE, "STOPPED_UPDATE");
+        put(frameworkEvents, FrameworkEvent.WAIT_TIMEDOUT, "WAIT_TIMEDOUT");
+        put(frameworkEvents, FrameworkEvent.WARNING, "WARNING");
+    }
+
     /**
      * Return the string representation of a {@link Bundle} state
      */
     public static String bundleState(int bundleState) {
-        String retState = "[" + bundleState + "]";
-        if (Bundle.UNINSTALLED == bundleState)
-            retState = "UNINSTALLED";
-        else if (Bundle.INSTALLED == bundleState)
-            retState = "INSTALLED";
-        else if (Bundle.RESOLVED == bundleState)
-            retState = "RESOLVED";
-        else if (Bundle.STARTING == bundleState)
-            retState = "STARTING";
-        else if (Bundle.STOPPING == bundleState)
-            retState = "STOPPING";
-        else if (Bundle.ACTIVE == bundleState)
-            retState = "ACTIVE";
-        return retState;
+        return decode(bundleStates, bundleState);
     }
 
     /**
      * Return the string representation of a {@link BundleEvent} type
      */
     public static String bundleEvent(int eventType) {
-        String retType = "[" + eventType + "]";
-        if (BundleEvent.INSTALLED == eventType)
-            retType = "INSTALLED";
-        else if (BundleEvent.LAZY_ACTIVATION == eventType)
-            retType = "LAZY_ACTIVATION";
-        else if (BundleEvent.RESOLVED == eventType)
-            retType = "RESOLVED";
-        else if (BundleEvent.STARTING == eventType)
-            retType = "STARTING";
-        else if (BundleEvent.STARTED == eventType)
-            retType = "STARTED";
-        else if (BundleEvent.STOPPING == eventType)
-            retType = "STOPPING";
-        else if (BundleEvent.STOPPED == eventType)
-            retType = "STOPPED";
-        else if (BundleEvent.UNINSTALLED == eventType)
-            retType = "UNINSTALLED";
-        else if (BundleEvent.UNRESOLVED == eventType)
-            retType = "UNRESOLVED";
-        else if (BundleEvent.UPDATED == eventType)
-            retType = "UPDATED";
-        return retType;
+        return decode(bundleEvents, eventType);
     }
 
     /**
      * Return the string representation of a {@link ServiceEvent} type
      */
     public static String serviceEvent(int eventType) {
-        String retType = "[" + eventType + "]";
-        if (ServiceEvent.REGISTERED == eventType)
-            retType = "REGISTERED";
-        else if (ServiceEvent.UNREGISTERING == eventType)
-            retType = "UNREGISTERING";
-        else if (ServiceEvent.MODIFIED == eventType)
-            retType = "MODIFIED";
-        else if (ServiceEvent.MODIFIED_ENDMATCH == eventType)
-            retType = "MODIFIED_ENDMATCH";
-        return retType;
+        return decode(serviceEvents, eventType);
     }
 
     public static String frameworkEvent(int eventType) {
-        String retType = "[" + eventType + "]";
-        if (FrameworkEvent.ERROR == eventType)
-            retType = "ERROR";
-        else if (FrameworkEvent.INFO == eventType)
-            retType = "INFO";
-        else if (FrameworkEvent.PACKAGES_REFRESHED == eventType)
-            retType = "PACKAGES_REFRESHED";
-        else if (FrameworkEvent.STARTED == eventType)
-            retType = "STARTED";
-        else if (FrameworkEvent.STARTLEVEL_CHANGED == eventType)
-            retType = "STARTLEVEL_CHANGED";
-        else if (FrameworkEvent.STOPPED == eventType)
-            retType = "STOPPED";
-        else if (FrameworkEvent.STOPPED_BOOTCLASSPATH_MODIFIED == eventType)
-            retType = "STOPPED_BOOTCLASSPATH_MODIFIED";
-        else if (FrameworkEvent.STOPPED_UPDATE == eventType)
-            retType = "STOPPED_UPDATE";
-        else if (FrameworkEvent.WAIT_TIMEDOUT == eventType)
-            retType = "WAIT_TIMEDOUT";
-        else if (FrameworkEvent.WARNING == eventType)
-            retType = "WARNING";
-        return retType;
+        return decode(frameworkEvents, eventType);
+    }
+
+    /**
+     * Get the bit position of a single bit flag, or -1 if the value is not a single bit
+     */
+    static int bitIndex(int flag) {
+        return flag != 0 && (flag & (flag - 1)) == 0 ? Integer.numberOfTrailingZeros(flag) : -1;
+    }
+
+    private static void put(String[] table, int flag, String name) {
+        table[bitIndex(flag)] = name;
+    }
+
+    private static String decode(String[] table, int flag) {
+        int index = bitIndex(flag);
+        String name = index >= 0 ? table[index] : null;
+        return name != null ? name : "[" + flag + "]";
     }
 
     /**
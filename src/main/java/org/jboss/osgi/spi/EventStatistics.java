@@ -0,0 +1,330 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.SynchronousBundleListener;
+
+/**
+ * Collects statistics about framework, bundle and service events.
+ * 
+ * Every event type is counted in striped counters, so that concurrent listeners do not contend on a single slot.
+ * Counting is allocation free. The time between the STARTING/STARTED and STOPPING/STOPPED bundle transitions is
+ * recorded in a {@link LatencyHistogram}. The pending transitions are kept in primitive tables keyed by bundle id,
+ * these only allocate when more bundles are in transition at the same time than they can hold.
+ * 
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public final class EventStatistics implements SynchronousBundleListener, ServiceListener, FrameworkListener {
+
+    // Event types are single bit flags, each kind gets 32 slots indexed by bit position
+    private static final int BUNDLE_OFFSET = 0;
+    private static final int SERVICE_OFFSET = 32;
+    private static final int FRAMEWORK_OFFSET = 64;
+    // Pad each stripe so that neighbouring stripes do not share a cache line
+    private static final int STRIPE_LENGTH = 96 + 8;
+
+    private final int stripeMask;
+    private final AtomicLongArray counters;
+    private final LatencyHistogram startLatency = new LatencyHistogram();
+    private final LatencyHistogram stopLatency = new LatencyHistogram();
+    private final PendingTimes startingTimes = new PendingTimes();
+    private final PendingTimes stoppingTimes = new PendingTimes();
+
+    public EventStatistics() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public EventStatistics(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, Math.min(stripes, 64)) * 2 - 1);
+        stripeMask = size - 1;
+        counters = new AtomicLongArray(size * STRIPE_LENGTH);
+    }
+
+    /**
+     * Register this collector with the given context
+     */
+    public void register(BundleContext context) {
+        context.addBundleListener(this);
+        context.addServiceListener(this);
+        context.addFrameworkListener(this);
+    }
+
+    /**
+     * Unregister this collector from the given context
+     */
+    public void unregister(BundleContext context) {
+        context.removeFrameworkListener(this);
+        context.removeServiceListener(this);
+        context.removeBundleListener(this);
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        int type = event.getType();
+        increment(BUNDLE_OFFSET, type);
+        long bundleId = event.getBundle().getBundleId();
+        switch (type) {
+            case BundleEvent.STARTING:
+                startingTimes.put(bundleId, System.nanoTime());
+                break;
+            case BundleEvent.STARTED:
+                recordTransition(startingTimes, bundleId, startLatency);
+                break;
+            case BundleEvent.STOPPING:
+                stoppingTimes.put(bundleId, System.nanoTime());
+                break;
+            case BundleEvent.STOPPED:
+                recordTransition(stoppingTimes, bundleId, stopLatency);
+                break;
+            case BundleEvent.UNINSTALLED:
+                startingTimes.remove(bundleId);
+                stoppingTimes.remove(bundleId);
+                break;
+        }
+    }
+
+    @Override
+    public void serviceChanged(ServiceEvent event) {
+        increment(SERVICE_OFFSET, event.getType());
+    }
+
+    @Override
+    public void frameworkEvent(FrameworkEvent event) {
+        increment(FRAMEWORK_OFFSET, event.getType());
+    }
+
+    /**
+     * Reset all counters and histograms
+     */
+    public void reset() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        startingTimes.clear();
+        stoppingTimes.clear();
+        startLatency.reset();
+        stopLatency.reset();
+    }
+
+    /**
+     * Get an immutable snapshot of the collected statistics
+     */
+    public Snapshot snapshot() {
+        long[] totals = new long[FRAMEWORK_OFFSET + 32];
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            int base = stripe * STRIPE_LENGTH;
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += counters.get(base + i);
+            }
+        }
+        return new Snapshot(totals, startLatency.snapshot(), stopLatency.snapshot());
+    }
+
+    private void increment(int offset, int type) {
+        int index = ConstantsHelper.bitIndex(type);
+        if (index >= 0) {
+            int stripe = (int) Thread.currentThread().getId() & stripeMask;
+            counters.incrementAndGet(stripe * STRIPE_LENGTH + offset + index);
+        }
+    }
+
+    private void recordTransition(PendingTimes pending, long bundleId, LatencyHistogram histogram) {
+        long start = pending.remove(bundleId);
+        if (start != PendingTimes.MISSING) {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * An open addressing table of the transition start times keyed by bundle id
+     */
+    private static final class PendingTimes {
+
+        static final long MISSING = Long.MIN_VALUE;
+        private static final long EMPTY = -1;
+
+        private long[] ids = newIds(16);
+        private long[] times = new long[16];
+        private int size;
+
+        synchronized void put(long bundleId, long time) {
+            if ((size + 1) * 2 > ids.length)
+                resize(ids.length * 2);
+
+            int index = find(ids, bundleId);
+            if (ids[index] == EMPTY) {
+                ids[index] = bundleId;
+                size++;
+            }
+            times[index] = time;
+        }
+
+        synchronized long remove(long bundleId) {
+            int index = find(ids, bundleId);
+            if (ids[index] == EMPTY)
+                return MISSING;
+
+            long time = times[index];
+            size--;
+
+            // Shift the following entries of the probe sequence back into the gap
+            int mask = ids.length - 1;
+            int next = index;
+            while (true) {
+                next = (next + 1) & mask;
+                if (ids[next] == EMPTY)
+                    break;
+                int home = slot(ids[next], mask);
+                boolean between = index <= next ? (index < home && home <= next) : (index < home || home <= next);
+                if (between == false) {
+                    ids[index] = ids[next];
+                    times[index] = times[next];
+                    index = next;
+                }
+            }
+            ids[index] = EMPTY;
+            return time;
+        }
+
+        synchronized void clear() {
+            Arrays.fill(ids, EMPTY);
+            size = 0;
+        }
+
+        private void resize(int capacity) {
+            long[] oldIds = ids;
+            long[] oldTimes = times;
+            ids = newIds(capacity);
+            times = new long[capacity];
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != EMPTY) {
+                    int index = find(ids, oldIds[i]);
+                    ids[index] = oldIds[i];
+                    times[index] = oldTimes[i];
+                }
+            }
+        }
+
+        private static int find(long[] ids, long bundleId) {
+            int mask = ids.length - 1;
+            int index = slot(bundleId, mask);
+            while (ids[index] != EMPTY && ids[index] != bundleId) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        private static int slot(long bundleId, int mask) {
+            long hash = bundleId * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private static long[] newIds(int capacity) {
+            long[] ids = new long[capacity];
+            Arrays.fill(ids, EMPTY);
+            return ids;
+        }
+    }
+
+    /**
+     * An immutable view of the {@link EventStatistics}
+     */
+    public static final class Snapshot {
+
+        private final long[] totals;
+        private final LatencyHistogram.Snapshot startLatency;
+        private final LatencyHistogram.Snapshot stopLatency;
+
+        Snapshot(long[] totals, LatencyHistogram.Snapshot startLatency, LatencyHistogram.Snapshot stopLatency) {
+            this.totals = totals;
+            this.startLatency = startLatency;
+            this.stopLatency = stopLatency;
+        }
+
+        public long getBundleEventCount(int type) {
+            return count(BUNDLE_OFFSET, type);
+        }
+
+        public long getServiceEventCount(int type) {
+            return count(SERVICE_OFFSET, type);
+        }
+
+        public long getFrameworkEventCount(int type) {
+            return count(FRAMEWORK_OFFSET, type);
+        }
+
+        /**
+         * Get the latency between the STARTING and STARTED bundle events
+         */
+        public LatencyHistogram.Snapshot getStartLatency() {
+            return startLatency;
+        }
+
+        /**
+         * Get the latency between the STOPPING and STOPPED bundle events
+         */
+        public LatencyHistogram.Snapshot getStopLatency() {
+            return stopLatency;
+        }
+
+        private long count(int offset, int type) {
+            int index = ConstantsHelper.bitIndex(type);
+            return index >= 0 ? totals[offset + index] : 0;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("EventStatistics[");
+            append(builder, "bundle", BUNDLE_OFFSET);
+            append(builder, "service", SERVICE_OFFSET);
+            append(builder, "framework", FRAMEWORK_OFFSET);
+            builder.append("start=").append(startLatency).append(",stop=").append(stopLatency).append("]");
+            return builder.toString();
+        }
+
+        private void append(StringBuilder builder, String kind, int offset) {
+            for (int i = 0; i < 32; i++) {
+                long count = totals[offset + i];
+                if (count > 0) {
+                    String name;
+                    if (offset == BUNDLE_OFFSET)
+                        name = ConstantsHelper.bundleEvent(1 << i);
+                    else if (offset == SERVICE_OFFSET)
+                        name = ConstantsHelper.serviceEvent(1 << i);
+                    else
+                        name = ConstantsHelper.frameworkEvent(1 << i);
+                    builder.append(kind).append(".").append(name).append("=").append(count).append(",");
+                }
+            }
+        }
+    }
+}
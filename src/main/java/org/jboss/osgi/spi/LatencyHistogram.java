@@ -0,0 +1,152 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with power of two buckets.
+ * 
+ * Recording a value is allocation free. Percentiles are reported as the upper bound of the bucket they fall into.
+ * 
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        buckets.incrementAndGet(bucketIndex(nanos));
+        total.addAndGet(nanos);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Reset all recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Get an immutable snapshot of the recorded values
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(counts, total.get(), max.get());
+    }
+
+    static int bucketIndex(long nanos) {
+        // bucket i holds values in [2^(i-1), 2^i)
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    static long bucketUpperBound(int index) {
+        return index >= 63 ? Long.MAX_VALUE : (1L << index) - 1;
+    }
+
+    /**
+     * An immutable view of a {@link LatencyHistogram}
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        Snapshot(long[] counts, long totalNanos, long maxNanos) {
+            long count = 0;
+            for (long c : counts) {
+                count += c;
+            }
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return count > 0 ? totalNanos / count : 0;
+        }
+
+        /**
+         * Get the approximate latency at the given percentile (0 - 100)
+         */
+        public long getPercentileNanos(double percentile) {
+            if (count == 0)
+                return 0;
+            long rank = (long) Math.ceil(count * Math.max(0.0, Math.min(100.0, percentile)) / 100.0);
+            rank = Math.max(1, rank);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank)
+                    return Math.min(bucketUpperBound(i), maxNanos);
+            }
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            TimeUnit unit = TimeUnit.MICROSECONDS;
+            return "[count=" + count + ",mean=" + unit.convert(getMeanNanos(), TimeUnit.NANOSECONDS) + "us,p50="
+                    + unit.convert(getPercentileNanos(50), TimeUnit.NANOSECONDS) + "us,p99="
+                    + unit.convert(getPercentileNanos(99), TimeUnit.NANOSECONDS) + "us,max="
+                    + unit.convert(maxNanos, TimeUnit.NANOSECONDS) + "us]";
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi;
+
+import static org.jboss.osgi.spi.SPILogger.LOGGER;
+
+import org.osgi.framework.Bundle;
+
+/**
+ * Emits timing events for SPI operations to a pluggable {@link Recorder}.
+ * 
+ * The events cover bundle info creation, manifest loading, bundle install, start and stop, as well as service
+ * lookups. Without a recorder, an instrumented operation costs a single volatile read. A runtime exception thrown by
+ * the recorder is logged and does not affect the operation.
+ * 
+ * A recorder is set programmatically or named by the system property {@link #PROP_EVENT_RECORDER}. The jfr module,
+ * which is built for JDK 11 or later, provides org.jboss.osgi.spi.jfr.FlightRecorderEventRecorder, which commits
+ * every operation as an org.jboss.osgi.spi.Operation event in Flight Recorder.
+ * 
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public final class SPIEvents {
+
+    /** Optional class name of the event recorder: org.jboss.osgi.spi.eventRecorder */
+    public static final String PROP_EVENT_RECORDER = "org.jboss.osgi.spi.eventRecorder";
+
+    /**
+     * The instrumented operations
+     */
+    public enum Type {
+        BUNDLE_INFO, MANIFEST_LOAD, BUNDLE_INSTALL, BUNDLE_START, BUNDLE_STOP, SERVICE_LOOKUP
+    }
+
+    /**
+     * Receives the events of completed operations
+     */
+    public interface Recorder {
+
+        /**
+         * Record a completed operation
+         * 
+         * @param type The operation type
+         * @param startNanos The {@link System#nanoTime()} when the operation started
+         * @param durationNanos The duration of the operation
+         * @param location The bundle location, the service name or null
+         * @param symbolicName The bundle symbolic name or null
+         * @param success False if the operation failed
+         */
+        void record(Type type, long startNanos, long durationNanos, String location, String symbolicName, boolean success);
+    }
+
+    private static final long DISABLED = Long.MIN_VALUE;
+
+    private static volatile Recorder recorder = createRecorder();
+
+    // Hide ctor
+    private SPIEvents() {
+    }
+
+    public static Recorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Set the event recorder, null disables the events
+     */
+    public static void setRecorder(Recorder recorder) {
+        SPIEvents.recorder = recorder;
+    }
+
+    /**
+     * Begin an operation
+     * 
+     * @return The start time or a marker value if no recorder is set
+     */
+    public static long begin() {
+        return recorder != null ? System.nanoTime() : DISABLED;
+    }
+
+    /**
+     * End an operation that was started with {@link #begin()}
+     * 
+     * @param location The location, which is only converted to a string when the event is recorded
+     */
+    public static void end(Type type, long start, Object location, String symbolicName, boolean success) {
+        if (start == DISABLED)
+            return;
+        Recorder current = recorder;
+        if (current != null) {
+            long duration = System.nanoTime() - start;
+            try {
+                current.record(type, start, duration, location != null ? location.toString() : null, symbolicName, success);
+            } catch (RuntimeException ex) {
+                LOGGER.warnCannotRecordEvent(ex, type);
+            }
+        }
+    }
+
+    /**
+     * End a bundle operation that was started with {@link #begin()}
+     * 
+     * The location and symbolic name are only read from the bundle when the event is recorded.
+     */
+    public static void end(Type type, long start, Bundle bundle, boolean success) {
+        if (start == DISABLED)
+            return;
+        Recorder current = recorder;
+        if (current != null) {
+            long duration = System.nanoTime() - start;
+            try {
+                current.record(type, start, duration, bundle.getLocation(), bundle.getSymbolicName(), success);
+            } catch (RuntimeException ex) {
+                LOGGER.warnCannotRecordEvent(ex, type);
+            }
+        }
+    }
+
+    private static Recorder createRecorder() {
+        String className = System.getProperty(PROP_EVENT_RECORDER);
+        if (className == null)
+            return null;
+        try {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if (loader == null)
+                loader = SPIEvents.class.getClassLoader();
+            return (Recorder) Class.forName(className, true, loader).newInstance();
+        } catch (Exception ex) {
+            LOGGER.warnCannotCreateEventRecorder(ex, className);
+            return null;
+        }
+    }
+}
@@ -46,8 +46,12 @@ package org.jboss.osgi.spi;
 import static org.jboss.logging.Logger.Level.INFO;
 import static org.jboss.logging.Logger.Level.WARN;
 
+import java.io.File;
+import java.util.List;
+
 import org.jboss.logging.BasicLogger;
 import org.jboss.logging.Logger;
+import org.jboss.logging.annotations.Cause;
 import org.jboss.logging.annotations.LogMessage;
 import org.jboss.logging.annotations.Message;
 import org.jboss.logging.annotations.MessageLogger;
@@ -96,4 +100,28 @@ public interface SPILogger extends BasicLogger {
     //@LogMessage(level = ERROR)
     //@Message(id = 10207, value = "Cannot stop framework")
     //void errorCannotStopFramework(@Cause Throwable cause);
+
+    @LogMessage(level = WARN)
+    @Message(id = 10208, value = "Cannot write bootstrap profile: %s")
+    void warnCannotWriteBootstrapProfile(@Cause Throwable cause, File file);
+
+    @LogMessage(level = WARN)
+    @Message(id = 10209, value = "Cannot create event recorder: %s")
+    void warnCannotCreateEventRecorder(@Cause Throwable cause, String className);
+
+    @LogMessage(level = INFO)
+    @Message(id = 10210, value = "Bundle updated [%d]: %s")
+    void infoBundleUpdated(long bundleId, Bundle bundle);
+
+    @LogMessage(level = INFO)
+    @Message(id = 10211, value = "Bundle uninstalled [%d]: %s")
+    void infoBundleUninstalled(long bundleId, Bundle bundle);
+
+    @LogMessage(level = WARN)
+    @Message(id = 10212, value = "Bundle refresh not completed within %d seconds: %s")
+    void warnBundleRefreshTimeout(long timeout, List<Bundle> bundles);
+
+    @LogMessage(level = WARN)
+    @Message(id = 10213, value = "Cannot record %s event")
+    void warnCannotRecordEvent(@Cause Throwable cause, SPIEvents.Type type);
 }
@@ -132,4 +132,28 @@ public interface SPIMessages {
 
     //@Message(id = 10322, value = "Cannot obtain Bundle-SymbolicName")
     //BundleException bundleCannotObtainBundleSymbolicName();
+
+    @Message(id = 10323, value = "Invalid number of bootstrap threads: %s")
+    IllegalStateException illegalStateInvalidBootstrapThreads(String value);
+
+    @Message(id = 10324, value = "Interrupted while processing auto bundles")
+    BundleException bundleInterruptedProcessingAutoBundles(@Cause Throwable cause);
+
+    @Message(id = 10325, value = "Cannot load metadata from: %s")
+    IllegalStateException illegalStateCannotLoadMetadata(@Cause Throwable cause, URL rootURL);
+
+    @Message(id = 10326, value = "Invalid %s: %s")
+    IllegalArgumentException illegalArgumentInvalidValue(String name, Object value);
+
+    @Message(id = 10327, value = "Cyclic property reference: %s")
+    IllegalStateException illegalStateCyclicPropertyReference(String cycle);
+
+    @Message(id = 10328, value = "Cannot update bundle: %s")
+    BundleException bundleCannotUpdateBundle(@Cause Throwable cause, String location);
+
+    @Message(id = 10329, value = "Invalid auto start level: %s")
+    IllegalStateException illegalStateInvalidStartLevel(String key);
+
+    @Message(id = 10330, value = "Usage: %s")
+    IllegalArgumentException illegalArgumentUsage(String usage);
 }
@@ -0,0 +1,52 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.framework;
+
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * A {@link Framework} with a non-blocking lifecycle API.
+ * 
+ * The frameworks returned by {@link PropertiesBootstrapProvider#getFramework()} implement this interface, so that a
+ * single supervisor thread can manage many frameworks without parking a thread in {@link Framework#waitForStop(long)}.
+ * 
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public interface AsyncFramework extends Framework {
+
+    /**
+     * Start the framework. The future completes with a {@link FrameworkEvent#STARTED} event when start has returned.
+     */
+    LifecycleFuture<FrameworkEvent> startAsync();
+
+    /**
+     * Stop the framework. The future completes with the event that {@link Framework#waitForStop(long)} would return.
+     */
+    LifecycleFuture<FrameworkEvent> stopAsync();
+
+    /**
+     * Get a future that completes when the running framework stops, or the framework that is started next.
+     */
+    LifecycleFuture<FrameworkEvent> onStop();
+}
@@ -0,0 +1,404 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.framework;
+
+import static org.jboss.osgi.spi.SPILogger.LOGGER;
+import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.osgi.spi.SPIEvents;
+import org.jboss.osgi.spi.SPIEvents.Type;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+/**
+ * Installs and starts the auto bundles of a {@link PropertiesBootstrapProvider}.
+ *
+ * With a single thread the bundles are installed and started in declared order.
+ * With more threads the bundles are installed concurrently on a bounded executor.
+ *
+ * The autoStart bundles are always started in declared order. Bundles with a declared start level
+ * are started afterwards in waves of ascending level. With more threads the bundles within one wave
+ * are started concurrently, a wave only begins when the previous wave has completed.
+ *
+ * If an operation fails, the remaining operations of that phase are still awaited and
+ * the first failure in declared order is thrown.
+ *
+ * If a {@link BundleInstrumentation} is given, the installed bundles are instrumented.
+ * Each phase and each bundle operation is recorded in the {@link BootstrapProfiler}.
+ *
+ * In warm restart mode, bundles that are already in the framework storage are reused if their source is
+ * unchanged and updated otherwise. Auto bundles of a previous boot that are no longer configured get
+ * uninstalled and bundles that the framework already restarted are not started again. The updated and
+ * uninstalled bundles are refreshed before any bundle is started, so that no bundle is wired to stale content.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+class AutoBundleInstaller {
+
+    // The time to wait for a refresh of the changed bundles
+    private static final long REFRESH_TIMEOUT_SECONDS = 60;
+
+    private final BundleContext context;
+    private final int threads;
+    private final BundleInstrumentation instrumentation;
+    private final BootstrapProfiler profiler;
+    private final AutoBundleState warmState;
+    // The updated and uninstalled bundles that need a refresh
+    private final Queue<Bundle> changedBundles = new ConcurrentLinkedQueue<Bundle>();
+
+    AutoBundleInstaller(BundleContext context, int threads) {
+        this(context, threads, null, new BootstrapProfiler(), null);
+    }
+
+    AutoBundleInstaller(BundleContext context, int threads, BundleInstrumentation instrumentation, BootstrapProfiler profiler, AutoBundleState warmState) {
+        if (context == null)
+            throw MESSAGES.illegalArgumentNull("context");
+        if (profiler == null)
+            throw MESSAGES.illegalArgumentNull("profiler");
+        this.context = context;
+        this.threads = threads;
+        this.instrumentation = instrumentation;
+        this.profiler = profiler;
+        this.warmState = warmState;
+    }
+
+    /**
+     * Install the given bundles and start the subset of autoStart bundles.
+     *
+     * @return The installed bundles keyed by their URL in declared order
+     */
+    Map<URL, Bundle> installAndStart(List<URL> autoInstall, List<URL> autoStart) throws BundleException {
+        return installAndStart(autoInstall, autoStart, new TreeMap<Integer, List<URL>>());
+    }
+
+    /**
+     * Install the given bundles, start the autoStart bundles in declared order and then the leveled bundles
+     * in waves of ascending start level.
+     *
+     * @return The installed bundles keyed by their URL in declared order
+     */
+    Map<URL, Bundle> installAndStart(List<URL> autoInstall, List<URL> autoStart, SortedMap<Integer, List<URL>> startLevels) throws BundleException {
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads, new BootstrapThreadFactory()) : null;
+        try {
+            BootstrapProfiler.Span span = profiler.begin("bootstrap", "installBundles");
+            Map<URL, Bundle> autoBundles;
+            try {
+                if (executor != null)
+                    autoBundles = installParallel(executor, autoInstall);
+                else
+                    autoBundles = installSerial(autoInstall);
+                uninstallRemoved(autoBundles);
+            } finally {
+                span.end();
+            }
+            refreshChangedBundles();
+            span = profiler.begin("bootstrap", "startBundles");
+            try {
+                startSerial(autoStart, autoBundles);
+                for (List<URL> wave : startLevels.values()) {
+                    if (executor != null)
+                        startParallel(executor, wave, autoBundles);
+                    else
+                        startSerial(wave, autoBundles);
+                }
+            } finally {
+                span.end();
+            }
+            return autoBundles;
+        } finally {
+            if (executor != null)
+                executor.shutdownNow();
+        }
+    }
+
+    private Map<URL, Bundle> installSerial(List<URL> autoInstall) throws BundleException {
+        Map<URL, Bundle> autoBundles = new LinkedHashMap<URL, Bundle>();
+        for (URL bundleURL : autoInstall) {
+            if (autoBundles.containsKey(bundleURL) == false)
+                autoBundles.put(bundleURL, installBundle(bundleURL));
+        }
+        return autoBundles;
+    }
+
+    private void startSerial(List<URL> autoStart, Map<URL, Bundle> autoBundles) throws BundleException {
+        for (URL bundleURL : autoStart) {
+            Bundle bundle = autoBundles.get(bundleURL);
+            if (bundle != null) {
+                startBundle(bundle);
+            }
+        }
+    }
+
+    private Map<URL, Bundle> installParallel(ExecutorService executor, List<URL> autoInstall) throws BundleException {
+        Map<URL, Future<Bundle>> futures = new LinkedHashMap<URL, Future<Bundle>>();
+        for (final URL bundleURL : autoInstall) {
+            if (futures.containsKey(bundleURL))
+                continue;
+
+            futures.put(bundleURL, executor.submit(new Callable<Bundle>() {
+                public Bundle call() throws Exception {
+                    return installBundle(bundleURL);
+                }
+            }));
+        }
+
+        Map<URL, Bundle> autoBundles = new LinkedHashMap<URL, Bundle>();
+        BundleException failure = null;
+        for (Map.Entry<URL, Future<Bundle>> entry : futures.entrySet()) {
+            try {
+                autoBundles.put(entry.getKey(), awaitResult(entry.getValue()));
+            } catch (BundleException ex) {
+                if (failure == null)
+                    failure = ex;
+            }
+        }
+        if (failure != null)
+            throw failure;
+
+        return autoBundles;
+    }
+
+    private void startParallel(ExecutorService executor, List<URL> wave, Map<URL, Bundle> autoBundles) throws BundleException {
+        List<Bundle> bundles = new ArrayList<Bundle>();
+        for (URL bundleURL : wave) {
+            Bundle bundle = autoBundles.get(bundleURL);
+            if (bundle != null && bundles.contains(bundle) == false)
+                bundles.add(bundle);
+        }
+
+        List<Future<Bundle>> futures = new ArrayList<Future<Bundle>>();
+        for (final Bundle bundle : bundles) {
+            futures.add(executor.submit(new Callable<Bundle>() {
+                public Bundle call() throws Exception {
+                    startBundle(bundle);
+                    return bundle;
+                }
+            }));
+        }
+
+        BundleException failure = null;
+        for (Future<Bundle> future : futures) {
+            try {
+                awaitResult(future);
+            } catch (BundleException ex) {
+                if (failure == null)
+                    failure = ex;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    private void uninstallRemoved(Map<URL, Bundle> autoBundles) throws BundleException {
+        if (warmState == null)
+            return;
+
+        List<String> locations = new ArrayList<String>();
+        for (URL bundleURL : autoBundles.keySet()) {
+            locations.add(bundleURL.toString());
+        }
+        for (Bundle bundle : warmState.getRemovedBundles(locations)) {
+            bundle.uninstall();
+            changedBundles.add(bundle);
+            LOGGER.infoBundleUninstalled(bundle.getBundleId(), bundle);
+        }
+        warmState.save();
+    }
+
+    private void refreshChangedBundles() throws BundleException {
+        if (changedBundles.isEmpty())
+            return;
+
+        List<Bundle> bundles = new ArrayList<Bundle>(changedBundles);
+        changedBundles.clear();
+        Bundle systemBundle = context.getBundle(0);
+        FrameworkWiring wiring = systemBundle != null ? systemBundle.adapt(FrameworkWiring.class) : null;
+        if (wiring == null) {
+            LOGGER.debugf("Cannot refresh bundles: %s", bundles);
+            return;
+        }
+
+        BootstrapProfiler.Span span = profiler.begin("bootstrap", "refreshBundles");
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            wiring.refreshBundles(bundles, new FrameworkListener() {
+                public void frameworkEvent(FrameworkEvent event) {
+                    if (event.getType() == FrameworkEvent.PACKAGES_REFRESHED)
+                        latch.countDown();
+                }
+            });
+            if (latch.await(REFRESH_TIMEOUT_SECONDS, TimeUnit.SECONDS) == false)
+                LOGGER.warnBundleRefreshTimeout(REFRESH_TIMEOUT_SECONDS, bundles);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw MESSAGES.bundleInterruptedProcessingAutoBundles(ex);
+        } finally {
+            span.end();
+        }
+    }
+
+    private Bundle installBundle(URL bundleURL) throws BundleException {
+        if (warmState != null) {
+            Bundle bundle = reuseBundle(bundleURL);
+            if (bundle != null)
+                return instrumentation != null ? instrumentation.instrument(bundle) : bundle;
+        }
+
+        Bundle bundle = null;
+        BootstrapProfiler.Span span = profiler.begin("bundle", "install " + bundleURL);
+        long start = SPIEvents.begin();
+        try {
+            bundle = context.installBundle(bundleURL.toString());
+        } finally {
+            span.end();
+            if (bundle != null)
+                SPIEvents.end(Type.BUNDLE_INSTALL, start, bundle, true);
+            else
+                SPIEvents.end(Type.BUNDLE_INSTALL, start, bundleURL, null, false);
+        }
+        LOGGER.infoBundleInstalled(bundle.getBundleId(), bundle);
+        return instrumentation != null ? instrumentation.instrument(bundle) : bundle;
+    }
+
+    /**
+     * Reuse or update the bundle with the given location from a previous boot
+     *
+     * @return The existing bundle or null if it must be installed
+     */
+    private Bundle reuseBundle(URL bundleURL) throws BundleException {
+        String location = bundleURL.toString();
+        String stamp;
+        try {
+            stamp = warmState.getStamp(bundleURL);
+        } catch (IOException ex) {
+            // Let the install report the unreadable source
+            return null;
+        }
+        warmState.recordStamp(location, stamp);
+
+        Bundle bundle = warmState.getExistingBundle(location);
+        if (bundle == null || bundle.getState() == Bundle.UNINSTALLED)
+            return null;
+
+        if (warmState.isUnchanged(bundle, stamp)) {
+            LOGGER.debugf("Reuse bundle: %s", bundle);
+            return bundle;
+        }
+
+        BootstrapProfiler.Span span = profiler.begin("bundle", "update " + bundleURL);
+        try {
+            InputStream input = bundleURL.openStream();
+            bundle.update(input);
+        } catch (IOException ex) {
+            throw MESSAGES.bundleCannotUpdateBundle(ex, location);
+        } finally {
+            span.end();
+        }
+        changedBundles.add(bundle);
+        LOGGER.infoBundleUpdated(bundle.getBundleId(), bundle);
+        return bundle;
+    }
+
+    private void startBundle(Bundle bundle) throws BundleException {
+        // The framework restarts persistently started bundles by itself
+        if (warmState != null && (bundle.getState() & (Bundle.STARTING | Bundle.ACTIVE)) != 0) {
+            LOGGER.debugf("Bundle already active: %s", bundle);
+            return;
+        }
+
+        BootstrapProfiler.Span span = profiler.begin("bundle", "start " + bundle.getSymbolicName());
+        try {
+            // An instrumented bundle emits the start event itself
+            if (bundle instanceof GenericBundleWrapper) {
+                bundle.start();
+            } else {
+                long start = SPIEvents.begin();
+                boolean success = false;
+                try {
+                    bundle.start();
+                    success = true;
+                } finally {
+                    SPIEvents.end(Type.BUNDLE_START, start, bundle, success);
+                }
+            }
+        } finally {
+            span.end();
+        }
+        LOGGER.infoBundleStarted(bundle.getBundleId(), bundle);
+    }
+
+    private static Bundle awaitResult(Future<Bundle> future) throws BundleException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw MESSAGES.bundleInterruptedProcessingAutoBundles(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof BundleException)
+                throw (BundleException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static class BootstrapThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable run) {
+            Thread thread = new Thread(run, "OSGi Bootstrap Thread-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
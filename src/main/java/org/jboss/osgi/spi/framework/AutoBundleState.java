@@ -0,0 +1,215 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.framework;
+
+import static org.jboss.osgi.spi.SPILogger.LOGGER;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+
+/**
+ * The state of the auto bundles for a warm restart.
+ * 
+ * The bundles that are already in the framework storage are matched by location. A source stamp, which is the last
+ * modified time and the size of the bundle URL or the SHA-1 digest of its content if these are unknown, is recorded
+ * in the data area of the system bundle. The size catches a replaced jar that kept its modification time. A bundle is reused if its stamp is unchanged. Auto bundles that were installed by a
+ * previous boot and are no longer configured are reported for removal.
+ * 
+ * If the framework provides no data area, a bundle is reused if its source is not newer than the bundle itself.
+ * 
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+class AutoBundleState {
+
+    static final String STATE_FILE = "jbosgi-autobundles.properties";
+
+    private final File stateFile;
+    private final Map<String, Bundle> existing = new HashMap<String, Bundle>();
+    private final Properties recorded = new Properties();
+    private final ConcurrentMap<String, String> stamps = new ConcurrentHashMap<String, String>();
+
+    AutoBundleState(BundleContext context) {
+        for (Bundle bundle : context.getBundles()) {
+            if (bundle.getBundleId() != 0)
+                existing.put(bundle.getLocation(), bundle);
+        }
+        stateFile = context.getDataFile(STATE_FILE);
+        if (stateFile != null && stateFile.isFile()) {
+            try {
+                InputStream input = new FileInputStream(stateFile);
+                try {
+                    recorded.load(input);
+                } finally {
+                    input.close();
+                }
+            } catch (IOException ex) {
+                LOGGER.debugf(ex, "Cannot read auto bundle state: %s", stateFile);
+                recorded.clear();
+            }
+        }
+    }
+
+    /**
+     * Get the bundle with the given location from a previous boot, or null
+     */
+    Bundle getExistingBundle(String location) {
+        return existing.get(location);
+    }
+
+    /**
+     * Get the current source stamp of the given bundle URL
+     */
+    String getStamp(URL bundleURL) throws IOException {
+        String stamp = getTimeStamp(bundleURL);
+        return stamp != null ? stamp : "sha1:" + getDigest(bundleURL);
+    }
+
+    /**
+     * True if the existing bundle was installed from the same content
+     */
+    boolean isUnchanged(Bundle bundle, String stamp) {
+        String previous = recorded.getProperty(bundle.getLocation());
+        if (previous != null)
+            return previous.equals(stamp);
+
+        // Nothing recorded, compare the source time with the bundle's install or update time
+        if (stamp.startsWith("time:")) {
+            String lastModified = stamp.substring(5, stamp.indexOf(':', 5));
+            return Long.parseLong(lastModified) <= bundle.getLastModified();
+        }
+        return false;
+    }
+
+    /**
+     * Record the stamp of an auto bundle of this boot
+     */
+    void recordStamp(String location, String stamp) {
+        stamps.put(location, stamp);
+    }
+
+    /**
+     * Get the auto bundles of a previous boot that are no longer configured
+     */
+    List<Bundle> getRemovedBundles(Collection<String> locations) {
+        List<Bundle> removed = new ArrayList<Bundle>();
+        for (String location : recorded.stringPropertyNames()) {
+            Bundle bundle = existing.get(location);
+            if (bundle != null && locations.contains(location) == false)
+                removed.add(bundle);
+        }
+        return removed;
+    }
+
+    /**
+     * Persist the stamps of this boot
+     */
+    void save() {
+        if (stateFile == null)
+            return;
+
+        Properties props = new Properties();
+        props.putAll(stamps);
+        try {
+            OutputStream output = new FileOutputStream(stateFile);
+            try {
+                props.store(output, "JBossOSGi auto bundles");
+            } finally {
+                output.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot write auto bundle state: %s", stateFile);
+        }
+    }
+
+    // Get the stamp time:[lastModified]:[size], or null if either is unknown
+    private static String getTimeStamp(URL url) {
+        long lastModified;
+        long size;
+        if ("file".equals(url.getProtocol())) {
+            File file;
+            try {
+                file = new File(url.toURI());
+            } catch (URISyntaxException ex) {
+                file = new File(url.getPath());
+            } catch (IllegalArgumentException ex) {
+                file = new File(url.getPath());
+            }
+            lastModified = file.lastModified();
+            size = file.length();
+        } else {
+            try {
+                URLConnection connection = url.openConnection();
+                lastModified = connection.getLastModified();
+                size = connection.getContentLength();
+                connection.getInputStream().close();
+            } catch (IOException ex) {
+                return null;
+            }
+        }
+        return lastModified > 0 && size >= 0 ? "time:" + lastModified + ":" + size : null;
+    }
+
+    private static String getDigest(URL url) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        InputStream input = url.openStream();
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            input.close();
+        }
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(String.format("%02x", b & 0xff));
+        }
+        return builder.toString();
+    }
+}
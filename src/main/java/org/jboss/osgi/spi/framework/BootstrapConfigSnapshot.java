@@ -0,0 +1,289 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.framework;
+
+import static org.jboss.osgi.spi.SPILogger.LOGGER;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.osgi.spi.util.StringPropertyReplacer.PropertyProvider;
+
+/**
+ * A persisted snapshot of a resolved bootstrap configuration.
+ * 
+ * The snapshot holds the resolved framework properties and the autoInstall/autoStart bundle URLs. It is valid as long
+ * as the configuration sources have not been modified and the system properties that were referenced during
+ * resolution still have the same values.
+ * 
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+final class BootstrapConfigSnapshot {
+
+    private static final int MAGIC = 0x4A42534E;
+    private static final int VERSION = 1;
+
+    private final String configURL;
+    private final Map<String, Long> sources;
+    private final Map<String, String> systemProperties;
+    private final Map<String, String> properties;
+    private final List<URL> autoInstall;
+    private final List<URL> autoStart;
+
+    private BootstrapConfigSnapshot(String configURL, Map<String, Long> sources, Map<String, String> systemProperties,
+            Map<String, String> properties, List<URL> autoInstall, List<URL> autoStart) {
+        this.configURL = configURL;
+        this.sources = sources;
+        this.systemProperties = systemProperties;
+        this.properties = properties;
+        this.autoInstall = autoInstall;
+        this.autoStart = autoStart;
+    }
+
+    /**
+     * Create a snapshot, or null if the modification time of a source is unknown
+     */
+    static BootstrapConfigSnapshot create(URL configURL, List<URL> sourceURLs, RecordingPropertyProvider provider,
+            Map<String, String> properties, List<URL> autoInstall, List<URL> autoStart) {
+        Map<String, Long> sources = new LinkedHashMap<String, Long>();
+        for (URL url : sourceURLs) {
+            long lastModified = getLastModified(url);
+            if (lastModified <= 0)
+                return null;
+            sources.put(url.toExternalForm(), lastModified);
+        }
+        return new BootstrapConfigSnapshot(configURL.toExternalForm(), sources, provider.getReferencedProperties(),
+                new LinkedHashMap<String, String>(properties), new ArrayList<URL>(autoInstall), new ArrayList<URL>(autoStart));
+    }
+
+    /**
+     * Read a snapshot, or null if the file does not exist or cannot be read
+     */
+    static BootstrapConfigSnapshot read(File file) {
+        if (file.isFile() == false)
+            return null;
+
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                    return null;
+                String configURL = readString(in);
+                Map<String, Long> sources = new LinkedHashMap<String, Long>();
+                for (int i = in.readInt(); i > 0; i--) {
+                    sources.put(readString(in), in.readLong());
+                }
+                Map<String, String> systemProperties = readMap(in);
+                Map<String, String> properties = readMap(in);
+                List<URL> autoInstall = readURLs(in);
+                List<URL> autoStart = readURLs(in);
+                return new BootstrapConfigSnapshot(configURL, sources, systemProperties, properties, autoInstall, autoStart);
+            } finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot read bootstrap snapshot: %s", file);
+            return null;
+        }
+    }
+
+    /**
+     * Write this snapshot to the given file
+     */
+    void write(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && parent.isDirectory() == false && parent.mkdirs() == false)
+            throw new IOException("Cannot create directory: " + parent);
+
+        // Write to a temp file first, so that a concurrent boot never sees a partial snapshot
+        File tmpFile = new File(file.getAbsolutePath() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, configURL);
+                out.writeInt(sources.size());
+                for (Map.Entry<String, Long> entry : sources.entrySet()) {
+                    writeString(out, entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+                writeMap(out, systemProperties);
+                writeMap(out, properties);
+                writeURLs(out, autoInstall);
+                writeURLs(out, autoStart);
+            } finally {
+                out.close();
+            }
+            if (file.exists())
+                file.delete();
+            if (tmpFile.renameTo(file) == false)
+                throw new IOException("Cannot rename " + tmpFile + " to " + file);
+        } finally {
+            if (tmpFile.exists())
+                tmpFile.delete();
+        }
+    }
+
+    /**
+     * True if this snapshot was taken from the given config and is still up to date
+     */
+    boolean isValid(URL config) {
+        if (configURL.equals(config.toExternalForm()) == false)
+            return false;
+
+        for (Map.Entry<String, Long> entry : sources.entrySet()) {
+            try {
+                if (getLastModified(new URL(entry.getKey())) != entry.getValue().longValue())
+                    return false;
+            } catch (MalformedURLException ex) {
+                return false;
+            }
+        }
+        for (Map.Entry<String, String> entry : systemProperties.entrySet()) {
+            String value = System.getProperty(entry.getKey());
+            String expected = entry.getValue();
+            if (expected == null ? value != null : expected.equals(value) == false)
+                return false;
+        }
+        return true;
+    }
+
+    Map<String, String> getProperties() {
+        return new HashMap<String, String>(properties);
+    }
+
+    List<URL> getAutoInstall() {
+        return new ArrayList<URL>(autoInstall);
+    }
+
+    List<URL> getAutoStart() {
+        return new ArrayList<URL>(autoStart);
+    }
+
+    private static long getLastModified(URL url) {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return new File(url.toURI()).lastModified();
+            } catch (URISyntaxException ex) {
+                return new File(url.getPath()).lastModified();
+            } catch (IllegalArgumentException ex) {
+                return new File(url.getPath()).lastModified();
+            }
+        }
+        try {
+            URLConnection connection = url.openConnection();
+            connection.setUseCaches(false);
+            long lastModified = connection.getLastModified();
+            connection.getInputStream().close();
+            return lastModified;
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readMap(DataInputStream in) throws IOException {
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        for (int i = in.readInt(); i > 0; i--) {
+            map.put(readString(in), readString(in));
+        }
+        return map;
+    }
+
+    private static void writeURLs(DataOutputStream out, List<URL> urls) throws IOException {
+        out.writeInt(urls.size());
+        for (URL url : urls) {
+            writeString(out, url.toExternalForm());
+        }
+    }
+
+    private static List<URL> readURLs(DataInputStream in) throws IOException {
+        List<URL> urls = new ArrayList<URL>();
+        for (int i = in.readInt(); i > 0; i--) {
+            urls.add(new URL(readString(in)));
+        }
+        return urls;
+    }
+
+    /**
+     * A system property provider that records the referenced properties and their values
+     */
+    static class RecordingPropertyProvider implements PropertyProvider {
+
+        private final Map<String, String> referenced = new LinkedHashMap<String, String>();
+
+        @Override
+        public synchronized String getProperty(String key) {
+            String value = System.getProperty(key);
+            referenced.put(key, value);
+            return value;
+        }
+
+        synchronized Map<String, String> getReferencedProperties() {
+            return Collections.unmodifiableMap(new LinkedHashMap<String, String>(referenced));
+        }
+    }
+}
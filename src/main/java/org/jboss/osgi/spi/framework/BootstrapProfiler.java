@@ -0,0 +1,231 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.framework;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the timeline of a framework bootstrap.
+ * 
+ * Each bootstrap phase and each bundle operation is recorded as a {@link Span}. Spans on the same thread nest by
+ * time. The timeline can be exported in the Chrome trace event format, which is understood by chrome://tracing and
+ * similar viewers.
+ * 
+ * At most {@link #MAX_SPANS} spans are recorded, later spans are dropped. A disabled profiler records nothing.
+ * 
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class BootstrapProfiler {
+
+    /** The maximum number of recorded spans */
+    public static final int MAX_SPANS = 10000;
+
+    private final long originNanos = System.nanoTime();
+    private final List<Span> spans = new ArrayList<Span>();
+    // Returned by begin() while the profiler is disabled
+    private final Span disabledSpan = new Span("", "", false);
+    private volatile boolean enabled = true;
+
+    /**
+     * Begin a span in the given category. The span is recorded when it ends.
+     */
+    public Span begin(String category, String name) {
+        return enabled ? new Span(category, name, true) : disabledSpan;
+    }
+
+    /**
+     * True if spans are recorded, which is the default
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable recording. Disabling also discards the recorded spans.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled == false)
+            clear();
+    }
+
+    /**
+     * Get the recorded spans in order of their end time
+     */
+    public List<Span> getSpans() {
+        synchronized (spans) {
+            return Collections.unmodifiableList(new ArrayList<Span>(spans));
+        }
+    }
+
+    /**
+     * Discard all recorded spans
+     */
+    public void clear() {
+        synchronized (spans) {
+            spans.clear();
+        }
+    }
+
+    /**
+     * Write the recorded spans as Chrome trace JSON
+     */
+    public void writeChromeTrace(Writer writer) throws IOException {
+        List<Span> recorded = getSpans();
+        Map<Long, String> threads = new LinkedHashMap<Long, String>();
+        writer.write("{\"traceEvents\":[");
+        boolean first = true;
+        for (Span span : recorded) {
+            threads.put(span.threadId, span.threadName);
+            writer.write(first ? "\n" : ",\n");
+            writer.write("{\"name\":");
+            writeString(writer, span.name);
+            writer.write(",\"cat\":");
+            writeString(writer, span.category);
+            writer.write(",\"ph\":\"X\",\"ts\":" + toMicros(span.startNanos - originNanos));
+            writer.write(",\"dur\":" + toMicros(span.getDurationNanos()));
+            writer.write(",\"pid\":1,\"tid\":" + span.threadId + "}");
+            first = false;
+        }
+        for (Map.Entry<Long, String> entry : threads.entrySet()) {
+            writer.write(first ? "\n" : ",\n");
+            writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + entry.getKey() + ",\"args\":{\"name\":");
+            writeString(writer, entry.getValue());
+            writer.write("}}");
+            first = false;
+        }
+        writer.write("\n],\"displayTimeUnit\":\"ms\"}\n");
+        writer.flush();
+    }
+
+    /**
+     * Get the recorded spans as Chrome trace JSON
+     */
+    public String toChromeTrace() {
+        StringWriter writer = new StringWriter();
+        try {
+            writeChromeTrace(writer);
+        } catch (IOException ex) {
+            // cannot happen with a StringWriter
+            throw new IllegalStateException(ex);
+        }
+        return writer.toString();
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                writer.write('\\');
+                writer.write(ch);
+            } else if (ch < 0x20) {
+                writer.write(String.format("\\u%04x", (int) ch));
+            } else {
+                writer.write(ch);
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * A timed section of the bootstrap
+     */
+    public final class Span {
+
+        private final String category;
+        private final String name;
+        private final long threadId;
+        private final String threadName;
+        private final long startNanos;
+        private final boolean record;
+        private volatile long endNanos = -1;
+
+        private Span(String category, String name, boolean record) {
+            Thread thread = Thread.currentThread();
+            this.category = category;
+            this.name = name;
+            this.threadId = thread.getId();
+            this.threadName = thread.getName();
+            this.startNanos = System.nanoTime();
+            this.record = record;
+        }
+
+        /**
+         * End this span and record it. Ending a span more than once has no effect.
+         */
+        public void end() {
+            if (record == false)
+                return;
+
+            synchronized (spans) {
+                if (endNanos < 0) {
+                    endNanos = System.nanoTime();
+                    if (spans.size() < MAX_SPANS)
+                        spans.add(this);
+                }
+            }
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        /**
+         * Get the start time relative to the creation of the profiler
+         */
+        public long getStartNanos() {
+            return startNanos - originNanos;
+        }
+
+        public long getDurationNanos() {
+            long end = endNanos;
+            return end < 0 ? 0 : end - startNanos;
+        }
+
+        @Override
+        public String toString() {
+            return category + ":" + name + "[" + toMicros(getDurationNanos()) + "us]";
+        }
+    }
+}
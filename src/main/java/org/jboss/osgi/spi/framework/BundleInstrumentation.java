@@ -0,0 +1,143 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.framework;
+
+import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.osgi.spi.framework.BundleMetrics.Operation;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
+
+/**
+ * Opt-in lifecycle timing for bundles.
+ * 
+ * An instrumented bundle records the wall time, invocation count and failures of start, stop, update, uninstall
+ * and loadClass in its {@link BundleMetrics}. Only calls made through the instrumented {@link Bundle} instance are
+ * recorded, the framework does not call through it. Bundles that are not instrumented carry no overhead.
+ * 
+ * The {@link PropertiesBootstrapProvider} instruments the auto bundles and registers this instance as a service
+ * when {@link PropertiesBootstrapProvider#PROP_OSGI_FRAMEWORK_INSTRUMENT_BUNDLES} is set. The bootstrap then records
+ * the start of the auto start bundles. Clients record the other operations by using the bundle returned from
+ * {@link #getBundle(long)} instead of the framework's bundle.
+ * 
+ * Registered as a bundle listener, the instrumentation discards the metrics of uninstalled bundles.
+ * 
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class BundleInstrumentation implements SynchronousBundleListener {
+
+    private final ConcurrentMap<Long, BundleMetrics> metrics = new ConcurrentHashMap<Long, BundleMetrics>();
+    private final ConcurrentMap<Long, Bundle> bundles = new ConcurrentHashMap<Long, Bundle>();
+
+    /**
+     * Get an instrumented view of the given bundle
+     */
+    public Bundle instrument(Bundle bundle) {
+        if (bundle == null)
+            throw MESSAGES.illegalArgumentNull("bundle");
+        if (bundle instanceof InstrumentedBundleWrapper)
+            return bundle;
+
+        Long bundleId = bundle.getBundleId();
+        Bundle instrumented = bundles.get(bundleId);
+        if (instrumented != null)
+            return instrumented;
+
+        BundleMetrics bundleMetrics = metrics.get(bundleId);
+        if (bundleMetrics == null) {
+            BundleMetrics newMetrics = new BundleMetrics(bundle);
+            bundleMetrics = metrics.putIfAbsent(bundleId, newMetrics);
+            if (bundleMetrics == null)
+                bundleMetrics = newMetrics;
+        }
+        Bundle newBundle = new InstrumentedBundleWrapper<Bundle>(bundle, bundleMetrics);
+        instrumented = bundles.putIfAbsent(bundleId, newBundle);
+        return instrumented != null ? instrumented : newBundle;
+    }
+
+    /**
+     * Get the instrumented view of the bundle with the given id, or null if it is not instrumented
+     */
+    public Bundle getBundle(long bundleId) {
+        return bundles.get(bundleId);
+    }
+
+    /**
+     * Get the metrics for the given bundle id, or null
+     */
+    public BundleMetrics getMetrics(long bundleId) {
+        return metrics.get(bundleId);
+    }
+
+    /**
+     * Get the metrics of all instrumented bundles
+     */
+    public Collection<BundleMetrics> getMetrics() {
+        return Collections.unmodifiableCollection(metrics.values());
+    }
+
+    /**
+     * Get the bundles with the slowest start invocation, slowest first
+     */
+    public List<BundleMetrics> getSlowestActivators(int limit) {
+        List<BundleMetrics> result = new ArrayList<BundleMetrics>();
+        for (BundleMetrics aux : metrics.values()) {
+            if (aux.getInvocationCount(Operation.START) > 0)
+                result.add(aux);
+        }
+        Collections.sort(result, new Comparator<BundleMetrics>() {
+            public int compare(BundleMetrics o1, BundleMetrics o2) {
+                long max1 = o1.getLatency(Operation.START).getMaxNanos();
+                long max2 = o2.getLatency(Operation.START).getMaxNanos();
+                return max1 < max2 ? 1 : (max1 == max2 ? 0 : -1);
+            }
+        });
+        return result.size() > limit ? new ArrayList<BundleMetrics>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * Discard all recorded metrics
+     */
+    public void clear() {
+        metrics.clear();
+        bundles.clear();
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        if (event.getType() == BundleEvent.UNINSTALLED) {
+            Long bundleId = event.getBundle().getBundleId();
+            bundles.remove(bundleId);
+            metrics.remove(bundleId);
+        }
+    }
+}
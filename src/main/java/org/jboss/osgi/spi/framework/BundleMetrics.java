@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.framework;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.jboss.osgi.spi.LatencyHistogram;
+import org.osgi.framework.Bundle;
+
+/**
+ * The lifecycle timings that are recorded for an instrumented bundle.
+ * 
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public final class BundleMetrics {
+
+    /**
+     * The recorded bundle operations
+     */
+    public enum Operation {
+        START, STOP, UPDATE, UNINSTALL, LOAD_CLASS
+    }
+
+    private static final int OPERATIONS = Operation.values().length;
+
+    private final long bundleId;
+    private final String symbolicName;
+    private final String location;
+    private final AtomicLongArray invocations = new AtomicLongArray(OPERATIONS);
+    private final AtomicLongArray failures = new AtomicLongArray(OPERATIONS);
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS];
+
+    BundleMetrics(Bundle bundle) {
+        this.bundleId = bundle.getBundleId();
+        this.symbolicName = bundle.getSymbolicName();
+        this.location = bundle.getLocation();
+        for (int i = 0; i < OPERATIONS; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    void record(Operation op, long nanos, boolean success) {
+        int index = op.ordinal();
+        invocations.incrementAndGet(index);
+        if (success == false)
+            failures.incrementAndGet(index);
+        latencies[index].record(nanos);
+    }
+
+    public long getBundleId() {
+        return bundleId;
+    }
+
+    public String getSymbolicName() {
+        return symbolicName;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public long getInvocationCount(Operation op) {
+        return invocations.get(op.ordinal());
+    }
+
+    public long getFailureCount(Operation op) {
+        return failures.get(op.ordinal());
+    }
+
+    /**
+     * Get the wall time distribution of the given operation
+     */
+    public LatencyHistogram.Snapshot getLatency(Operation op) {
+        return latencies[op.ordinal()].snapshot();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("BundleMetrics[" + symbolicName + ":" + bundleId);
+        for (Operation op : Operation.values()) {
+            long count = getInvocationCount(op);
+            if (count > 0) {
+                builder.append(",").append(op).append("=").append(getLatency(op));
+                long failed = getFailureCount(op);
+                if (failed > 0)
+                    builder.append("(failed=").append(failed).append(")");
+            }
+        }
+        return builder.append("]").toString();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.framework;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
+
+/**
+ * Caches the positive and negative results of {@link Bundle#loadClass(String)} for a {@link GenericBundleWrapper}.
+ * 
+ * The cache is opt-in, it is used when the system property {@link #PROP_CLASS_LOAD_CACHE} is true at the time
+ * the wrapper is created.
+ * 
+ * The cache listens on the bundle's own context. It is cleared when the bundle is UPDATED or UNRESOLVED and becomes
+ * invalid when the bundle is STOPPING or UNINSTALLED, because the listener goes away with the context. Negative
+ * entries are also dropped when any bundle gets RESOLVED, because it may provide a dynamically imported package.
+ * 
+ * Cached misses are reported with a {@link ClassNotFoundException} that does not capture a stack trace.
+ * 
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+class ClassLoadCache implements SynchronousBundleListener {
+
+    /** Optional flag that enables the class load cache: org.jboss.osgi.spi.framework.classLoadCache */
+    static final String PROP_CLASS_LOAD_CACHE = "org.jboss.osgi.spi.framework.classLoadCache";
+
+    // Bound the negative entries, so that probes for random names cannot grow the cache without limit
+    private static final int MAX_NEGATIVE_ENTRIES = 4096;
+    private static final Object NOT_FOUND = new Object();
+
+    private final Bundle bundle;
+    private final BundleContext context;
+    private final ConcurrentMap<String, Object> entries = new ConcurrentHashMap<String, Object>();
+    private final AtomicInteger negativeEntries = new AtomicInteger();
+    private volatile int generation;
+    private volatile boolean valid = true;
+
+    ClassLoadCache(Bundle bundle, BundleContext context) {
+        this.bundle = bundle;
+        this.context = context;
+        context.addBundleListener(this);
+    }
+
+    /**
+     * True if the cache is enabled, it is off by default
+     */
+    static boolean isEnabled() {
+        return Boolean.parseBoolean(SecurityActions.getSystemProperty(PROP_CLASS_LOAD_CACHE, "false"));
+    }
+
+    boolean isValid() {
+        return valid;
+    }
+
+    Class<?> loadClass(String name) throws ClassNotFoundException {
+        Object value = entries.get(name);
+        if (value == NOT_FOUND)
+            throw new CachedClassNotFoundException(name);
+        if (value != null)
+            return (Class<?>) value;
+
+        int gen = generation;
+        try {
+            Class<?> result = bundle.loadClass(name);
+            cache(name, result, gen);
+            return result;
+        } catch (ClassNotFoundException ex) {
+            if (negativeEntries.get() < MAX_NEGATIVE_ENTRIES && cache(name, NOT_FOUND, gen))
+                negativeEntries.incrementAndGet();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        int type = event.getType();
+        if (event.getBundle().getBundleId() != bundle.getBundleId()) {
+            if (type == BundleEvent.RESOLVED)
+                clearNegativeEntries();
+            return;
+        }
+        switch (type) {
+            case BundleEvent.UPDATED:
+            case BundleEvent.UNRESOLVED:
+                clear();
+                break;
+            case BundleEvent.STOPPING:
+            case BundleEvent.UNINSTALLED:
+                valid = false;
+                clear();
+                try {
+                    context.removeBundleListener(this);
+                } catch (IllegalStateException ex) {
+                    // context already invalid
+                }
+                break;
+        }
+    }
+
+    private boolean cache(String name, Object value, int gen) {
+        if (valid == false || entries.putIfAbsent(name, value) != null)
+            return false;
+        // Drop the entry again if the cache was cleared while the class was loading
+        if (generation != gen) {
+            entries.remove(name, value);
+            return false;
+        }
+        return true;
+    }
+
+    private void clear() {
+        generation++;
+        entries.clear();
+        negativeEntries.set(0);
+    }
+
+    private void clearNegativeEntries() {
+        generation++;
+        Iterator<Object> itval = entries.values().iterator();
+        while (itval.hasNext()) {
+            if (itval.next() == NOT_FOUND) {
+                itval.remove();
+                negativeEntries.decrementAndGet();
+            }
+        }
+    }
+
+    static class CachedClassNotFoundException extends ClassNotFoundException {
+
+        private static final long serialVersionUID = 1L;
+
+        CachedClassNotFoundException(String name) {
+            super(name);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
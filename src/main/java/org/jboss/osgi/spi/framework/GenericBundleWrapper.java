@@ -54,6 +54,8 @@ import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 
+import org.jboss.osgi.spi.SPIEvents;
+import org.jboss.osgi.spi.SPIEvents.Type;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleException;
@@ -63,17 +65,25 @@ import org.osgi.framework.Version;
 /**
  * A generic Bundle wrapper that delegates all method calls to the underlying Bundle implementation.
  * 
+ * The results of {@link #loadClass(String)} are cached while the underlying Bundle has a valid context.
+ * The localized headers are cached until the underlying Bundle gets updated.
+ * 
  * @author thomas.diesler@jboss.com
  * @since 16-Oct-2009
  */
 class GenericBundleWrapper<T extends Bundle> implements Bundle {
 
     private T bundle;
+    private final HeaderCache headerCache;
+    private final boolean classLoadCacheEnabled;
+    private volatile ClassLoadCache classLoadCache;
 
     public GenericBundleWrapper(T bundle) {
         if (bundle == null)
             throw MESSAGES.illegalArgumentNull("bundle");
         this.bundle = bundle;
+        this.headerCache = HeaderCache.isEnabled() ? new HeaderCache(bundle) : null;
+        this.classLoadCacheEnabled = ClassLoadCache.isEnabled();
     }
 
     protected T getWrappedBundle() {
@@ -101,10 +111,12 @@ class GenericBundleWrapper<T extends Bundle> implements Bundle {
     }
 
     public Dictionary<String, String> getHeaders() {
-        return bundle.getHeaders();
+        return headerCache != null ? headerCache.getHeaders(null) : bundle.getHeaders();
     }
 
-   public Dictionary<String, String> getHeaders(String locale) {
+    public Dictionary<String, String> getHeaders(String locale) {
+        if (headerCache != null && locale != null)
+            return headerCache.getHeaders(locale);
         return bundle.getHeaders(locale);
     }
 
@@ -153,23 +165,52 @@ class GenericBundleWrapper<T extends Bundle> implements Bundle {
     }
 
     public Class<?> loadClass(String name) throws ClassNotFoundException {
-        return bundle.loadClass(name);
+        ClassLoadCache cache = getClassLoadCache();
+        return cache != null ? cache.loadClass(name) : bundle.loadClass(name);
     }
 
     public void start() throws BundleException {
-        bundle.start();
+        long start = SPIEvents.begin();
+        boolean success = false;
+        try {
+            bundle.start();
+            success = true;
+        } finally {
+            SPIEvents.end(Type.BUNDLE_START, start, bundle, success);
+        }
     }
 
     public void start(int options) throws BundleException {
-        bundle.start(options);
+        long start = SPIEvents.begin();
+        boolean success = false;
+        try {
+            bundle.start(options);
+            success = true;
+        } finally {
+            SPIEvents.end(Type.BUNDLE_START, start, bundle, success);
+        }
     }
 
     public void stop() throws BundleException {
-        bundle.stop();
+        long start = SPIEvents.begin();
+        boolean success = false;
+        try {
+            bundle.stop();
+            success = true;
+        } finally {
+            SPIEvents.end(Type.BUNDLE_STOP, start, bundle, success);
+        }
     }
 
     public void stop(int options) throws BundleException {
-        bundle.stop(options);
+        long start = SPIEvents.begin();
+        boolean success = false;
+        try {
+            bundle.stop(options);
+            success = true;
+        } finally {
+            SPIEvents.end(Type.BUNDLE_STOP, start, bundle, success);
+        }
     }
 
     public void uninstall() throws BundleException {
@@ -196,6 +237,32 @@ class GenericBundleWrapper<T extends Bundle> implements Bundle {
         return bundle.getDataFile(filename);
     }
 
+    private ClassLoadCache getClassLoadCache() {
+        ClassLoadCache cache = classLoadCache;
+        if (cache != null && cache.isValid())
+            return cache;
+        // Only an active bundle has a context to listen on
+        if (classLoadCacheEnabled == false || (bundle.getState() & (Bundle.STARTING | Bundle.ACTIVE)) == 0)
+            return null;
+
+        synchronized (this) {
+            cache = classLoadCache;
+            if (cache == null || cache.isValid() == false) {
+                cache = null;
+                BundleContext context = bundle.getBundleContext();
+                if (context != null) {
+                    try {
+                        cache = new ClassLoadCache(bundle, context);
+                    } catch (IllegalStateException ex) {
+                        // context no longer valid
+                    }
+                }
+                classLoadCache = cache;
+            }
+            return cache;
+        }
+    }
+
     @Override
     public int hashCode() {
         return bundle.hashCode();
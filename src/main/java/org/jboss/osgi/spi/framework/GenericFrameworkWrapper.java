@@ -42,17 +42,34 @@
  */
 package org.jboss.osgi.spi.framework;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleException;
 import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.SynchronousBundleListener;
 import org.osgi.framework.launch.Framework;
 
 /**
  * A generic Framework wrapper that delegates all method calls to the underlying Framework implementation.
  * 
+ * The asynchronous lifecycle operations are driven by the STOPPING event of the system bundle. A pooled thread
+ * is only used while the framework starts or completes its shutdown.
+ * 
  * @author thomas.diesler@jboss.com
  * @since 16-Oct-2009
  */
-class GenericFrameworkWrapper<T extends Framework> extends GenericBundleWrapper<T> implements Framework {
+class GenericFrameworkWrapper<T extends Framework> extends GenericBundleWrapper<T> implements AsyncFramework {
+
+    private static final ExecutorService lifecycleExecutor = Executors.newCachedThreadPool(new LifecycleThreadFactory());
+
+    private LifecycleFuture<FrameworkEvent> stopFuture;
+    private boolean stopListenerRegistered;
 
     public GenericFrameworkWrapper(T framework) {
         super(framework);
@@ -65,10 +82,113 @@ class GenericFrameworkWrapper<T extends Framework> extends GenericBundleWrapper<
     @Override
     public void init() throws BundleException {
         getWrappedFramework().init();
+        registerStopListener();
+    }
+
+    @Override
+    public void start() throws BundleException {
+        // Initialize first, so that the stop listener is in place before the framework starts
+        if ((getState() & (Bundle.STARTING | Bundle.ACTIVE)) == 0)
+            init();
+        super.start();
+        registerStopListener();
     }
 
     @Override
     public FrameworkEvent waitForStop(long timeout) throws InterruptedException {
         return getWrappedFramework().waitForStop(timeout);
     }
-}
\ No newline at end of file
+
+    @Override
+    public LifecycleFuture<FrameworkEvent> startAsync() {
+        final LifecycleFuture<FrameworkEvent> future = new LifecycleFuture<FrameworkEvent>();
+        lifecycleExecutor.execute(new Runnable() {
+            public void run() {
+                try {
+                    start();
+                    future.complete(new FrameworkEvent(FrameworkEvent.STARTED, GenericFrameworkWrapper.this, null));
+                } catch (Throwable th) {
+                    future.fail(th);
+                }
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public LifecycleFuture<FrameworkEvent> stopAsync() {
+        LifecycleFuture<FrameworkEvent> future = onStop();
+        if (isRunning() == false) {
+            future.complete(new FrameworkEvent(FrameworkEvent.STOPPED, this, null));
+            return future;
+        }
+        try {
+            stop();
+        } catch (BundleException ex) {
+            future.fail(ex);
+        }
+        return future;
+    }
+
+    @Override
+    public synchronized LifecycleFuture<FrameworkEvent> onStop() {
+        if (stopFuture == null || (stopFuture.isDone() && isRunning())) {
+            stopFuture = new LifecycleFuture<FrameworkEvent>();
+            stopListenerRegistered = false;
+        }
+        registerStopListener();
+        return stopFuture;
+    }
+
+    private boolean isRunning() {
+        return (getState() & (Bundle.STARTING | Bundle.ACTIVE | Bundle.STOPPING)) != 0;
+    }
+
+    private synchronized void registerStopListener() {
+        if (stopFuture == null || stopFuture.isDone() || stopListenerRegistered)
+            return;
+
+        // The system context is only available once the framework is initialized
+        BundleContext context = getBundleContext();
+        if (context == null)
+            return;
+
+        final LifecycleFuture<FrameworkEvent> future = stopFuture;
+        context.addBundleListener(new SynchronousBundleListener() {
+            public void bundleChanged(BundleEvent event) {
+                if (event.getType() == BundleEvent.STOPPING && event.getBundle().getBundleId() == 0) {
+                    awaitStop(future);
+                }
+            }
+        });
+        stopListenerRegistered = true;
+    }
+
+    private void awaitStop(final LifecycleFuture<FrameworkEvent> future) {
+        // The framework is already shutting down, the wait does not outlive the shutdown
+        lifecycleExecutor.execute(new Runnable() {
+            public void run() {
+                try {
+                    future.complete(waitForStop(0));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    future.fail(ex);
+                } catch (Throwable th) {
+                    future.fail(th);
+                }
+            }
+        });
+    }
+
+    private static class LifecycleThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable run) {
+            Thread thread = new Thread(run, "OSGi Lifecycle Thread-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
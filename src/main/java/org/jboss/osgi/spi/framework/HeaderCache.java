@@ -0,0 +1,191 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.framework;
+
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.osgi.spi.util.UnmodifiableDictionary;
+import org.osgi.framework.Bundle;
+
+/**
+ * Caches the localized headers of a {@link GenericBundleWrapper}.
+ * 
+ * The headers are held as an unmodifiable copy per locale, which looks up header names case insensitively like
+ * {@link Bundle#getHeaders()} does. The cache is validated against the bundle's last modified time, which changes on
+ * update, and its resolved state, which decides whether attached fragments contribute to the localization. Headers of
+ * an uninstalled bundle are not cached.
+ * 
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+class HeaderCache {
+
+    /** Optional flag that enables the header cache: org.jboss.osgi.spi.framework.headerCache */
+    static final String PROP_HEADER_CACHE = "org.jboss.osgi.spi.framework.headerCache";
+
+    private static final int MAX_LOCALES = 32;
+
+    // The cache key of the default locale, together with the locale it was built from
+    private static volatile DefaultLocaleKey defaultLocaleKey = new DefaultLocaleKey(Locale.getDefault());
+
+    private final Bundle bundle;
+    private volatile Entries entries;
+
+    HeaderCache(Bundle bundle) {
+        this.bundle = bundle;
+    }
+
+    /**
+     * True if the cache is enabled, it is off by default
+     */
+    static boolean isEnabled() {
+        return Boolean.parseBoolean(SecurityActions.getSystemProperty(PROP_HEADER_CACHE, "false"));
+    }
+
+    /**
+     * Get the headers for the given locale, null for the default locale
+     */
+    Dictionary<String, String> getHeaders(String locale) {
+        int state = bundle.getState();
+        if (state == Bundle.UNINSTALLED)
+            return locale != null ? bundle.getHeaders(locale) : bundle.getHeaders();
+
+        long lastModified = bundle.getLastModified();
+        boolean resolved = state != Bundle.INSTALLED;
+        Entries current = entries;
+        if (current == null || current.lastModified != lastModified || current.resolved != resolved) {
+            current = new Entries(lastModified, resolved);
+            entries = current;
+        }
+
+        // getHeaders() follows the default locale, which may change at runtime
+        String key = locale != null ? locale : getDefaultLocaleKey();
+        Dictionary<String, String> headers = current.headers.get(key);
+        if (headers == null) {
+            headers = new Headers(locale != null ? bundle.getHeaders(locale) : bundle.getHeaders());
+            if (current.headers.size() < MAX_LOCALES)
+                current.headers.putIfAbsent(key, headers);
+        }
+        return headers;
+    }
+
+    private static String getDefaultLocaleKey() {
+        Locale locale = Locale.getDefault();
+        DefaultLocaleKey current = defaultLocaleKey;
+        if (current.locale != locale) {
+            current = new DefaultLocaleKey(locale);
+            defaultLocaleKey = current;
+        }
+        return current.key;
+    }
+
+    private static class DefaultLocaleKey {
+
+        private final Locale locale;
+        private final String key;
+
+        DefaultLocaleKey(Locale locale) {
+            this.locale = locale;
+            this.key = "\0" + locale;
+        }
+    }
+
+    private static class Entries {
+
+        private final long lastModified;
+        private final boolean resolved;
+        private final ConcurrentMap<String, Dictionary<String, String>> headers = new ConcurrentHashMap<String, Dictionary<String, String>>();
+
+        Entries(long lastModified, boolean resolved) {
+            this.lastModified = lastModified;
+            this.resolved = resolved;
+        }
+    }
+
+    /**
+     * Unmodifiable headers with case insensitive lookup of the header names
+     */
+    private static class Headers extends Dictionary<String, String> {
+
+        private final UnmodifiableDictionary<String, String> headers;
+        private final Map<String, String> lowerCaseHeaders;
+
+        Headers(Dictionary<String, String> source) {
+            headers = new UnmodifiableDictionary<String, String>(source);
+            lowerCaseHeaders = new HashMap<String, String>(headers.size() * 2);
+            Enumeration<String> keys = headers.keys();
+            while (keys.hasMoreElements()) {
+                String key = keys.nextElement();
+                lowerCaseHeaders.put(key.toLowerCase(Locale.ENGLISH), headers.get(key));
+            }
+        }
+
+        @Override
+        public String get(Object key) {
+            String value = headers.get(key);
+            if (value == null && key instanceof String)
+                value = lowerCaseHeaders.get(((String) key).toLowerCase(Locale.ENGLISH));
+            return value;
+        }
+
+        @Override
+        public int size() {
+            return headers.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return headers.isEmpty();
+        }
+
+        @Override
+        public Enumeration<String> keys() {
+            return headers.keys();
+        }
+
+        @Override
+        public Enumeration<String> elements() {
+            return headers.elements();
+        }
+
+        @Override
+        public String put(String key, String value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String remove(Object key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString() {
+            return headers.toString();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.framework;
+
+import java.io.InputStream;
+
+import org.jboss.osgi.spi.framework.BundleMetrics.Operation;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleException;
+
+/**
+ * A Bundle wrapper that records the lifecycle timings of the underlying Bundle.
+ * 
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+class InstrumentedBundleWrapper<T extends Bundle> extends GenericBundleWrapper<T> {
+
+    private final BundleMetrics metrics;
+
+    InstrumentedBundleWrapper(T bundle, BundleMetrics metrics) {
+        super(bundle);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Class<?> loadClass(String name) throws ClassNotFoundException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Class<?> result = super.loadClass(name);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(Operation.LOAD_CLASS, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public void start() throws BundleException {
+        start(0);
+    }
+
+    @Override
+    public void start(int options) throws BundleException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            super.start(options);
+            success = true;
+        } finally {
+            metrics.record(Operation.START, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public void stop() throws BundleException {
+        stop(0);
+    }
+
+    @Override
+    public void stop(int options) throws BundleException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            super.stop(options);
+            success = true;
+        } finally {
+            metrics.record(Operation.STOP, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public void update() throws BundleException {
+        update(null);
+    }
+
+    @Override
+    public void update(InputStream input) throws BundleException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            super.update(input);
+            success = true;
+        } finally {
+            metrics.record(Operation.UPDATE, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public void uninstall() throws BundleException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            super.uninstall();
+            success = true;
+        } finally {
+            metrics.record(Operation.UNINSTALL, System.nanoTime() - start, success);
+        }
+    }
+}
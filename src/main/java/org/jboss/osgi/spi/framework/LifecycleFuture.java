@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The result of an asynchronous framework lifecycle operation.
+ * 
+ * Besides the blocking {@link Future} methods, completion can be observed through callbacks, which are invoked on
+ * the thread that completes the operation. Waiting threads are released before the callbacks run, so a callback
+ * may still be running when {@link #get()} returns. A lifecycle operation cannot be cancelled.
+ * 
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public final class LifecycleFuture<V> implements Future<V> {
+
+    /**
+     * A callback that is notified when a {@link LifecycleFuture} completes
+     */
+    public interface Callback<V> {
+
+        void completed(V result);
+
+        void failed(Throwable cause);
+    }
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private List<Callback<V>> callbacks = new ArrayList<Callback<V>>();
+    private volatile boolean done;
+    private V result;
+    private Throwable failure;
+
+    LifecycleFuture() {
+    }
+
+    /**
+     * Add a callback, which is invoked immediately if this future is already done
+     */
+    public void addCallback(Callback<V> callback) {
+        synchronized (this) {
+            if (done == false) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        invokeCallback(callback);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public V get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return getResult();
+    }
+
+    @Override
+    public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (latch.await(timeout, unit) == false)
+            throw new TimeoutException();
+        return getResult();
+    }
+
+    boolean complete(V value) {
+        return setDone(value, null);
+    }
+
+    boolean fail(Throwable cause) {
+        return setDone(null, cause);
+    }
+
+    private boolean setDone(V value, Throwable cause) {
+        List<Callback<V>> pending;
+        synchronized (this) {
+            if (done)
+                return false;
+            result = value;
+            failure = cause;
+            done = true;
+            pending = callbacks;
+            callbacks = null;
+        }
+        latch.countDown();
+        for (Callback<V> callback : pending) {
+            invokeCallback(callback);
+        }
+        return true;
+    }
+
+    private synchronized V getResult() throws ExecutionException {
+        if (failure != null)
+            throw new ExecutionException(failure);
+        return result;
+    }
+
+    private void invokeCallback(Callback<V> callback) {
+        V value;
+        Throwable cause;
+        synchronized (this) {
+            value = result;
+            cause = failure;
+        }
+        if (cause != null)
+            callback.failed(cause);
+        else
+            callback.completed(value);
+    }
+}
@@ -47,6 +47,7 @@ import static org.jboss.osgi.spi.SPILogger.LOGGER;
 import java.util.List;
 
 import org.jboss.osgi.spi.util.ServiceLoader;
+import org.jboss.osgi.spi.util.ServiceLoader.ServiceSupplier;
 
 /**
  * The OSGiBootstrap is the entry point to obtain an {@link OSGiBootstrapProvider}.
@@ -72,14 +73,16 @@ public class OSGiBootstrap {
 
         OSGiBootstrapProvider provider = null;
 
-        List<OSGiBootstrapProvider> providers = ServiceLoader.loadServices(OSGiBootstrapProvider.class);
-        for (OSGiBootstrapProvider aux : providers) {
+        // Only instantiate providers until one can be configured
+        List<ServiceSupplier<OSGiBootstrapProvider>> suppliers = ServiceLoader.loadServiceSuppliers(OSGiBootstrapProvider.class);
+        for (ServiceSupplier<OSGiBootstrapProvider> supplier : suppliers) {
             try {
+                OSGiBootstrapProvider aux = supplier.get();
                 aux.configure();
                 provider = aux;
                 break;
             } catch (Exception ex) {
-                LOGGER.debugf(ex, "Cannot configure [%s]", aux.getClass().getName());
+                LOGGER.debugf(ex, "Cannot configure [%s]", supplier.getClassName());
             }
         }
 
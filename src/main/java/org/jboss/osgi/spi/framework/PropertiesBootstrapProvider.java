@@ -46,8 +46,11 @@ import static org.jboss.osgi.spi.SPILogger.LOGGER;
 import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -58,10 +61,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.jboss.osgi.spi.util.ServiceLoader;
+import org.jboss.osgi.spi.framework.BootstrapConfigSnapshot.RecordingPropertyProvider;
 import org.jboss.osgi.spi.util.StringPropertyReplacer;
-import org.osgi.framework.Bundle;
+import org.jboss.osgi.spi.util.StringPropertyReplacer.PropertyProvider;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleException;
 import org.osgi.framework.launch.Framework;
@@ -75,7 +81,9 @@ import org.osgi.framework.launch.FrameworkFactory;
  * <ul>
  * <li><b>org.jboss.osgi.framework.autoInstall</b> - Bundles that need to be installed with the Framework automatically</li>
  * <li><b>org.jboss.osgi.framework.autoStart</b> - Bundles that need to be started automatically</li>
+ * <li><b>org.jboss.osgi.framework.autoStart.[level]</b> - Bundles that need to be started automatically at the given bootstrap start level</li>
  * <li><b>org.jboss.osgi.framework.extra</b> - An URL to extra properties, which recursivly may conatin this property.</li>
+ * <li><b>org.jboss.osgi.framework.bootstrapThreads</b> - Number of threads that install and start the auto bundles. Defaults to 1.</li>
  * </ul>
  * 
  * All other properties are passed on to configure the framework.
@@ -92,6 +100,18 @@ import org.osgi.framework.launch.FrameworkFactory;
  *       file://${test.archive.directory}/bundles/org.apache.felix.log.jar 
  * </pre>
  * 
+ * The autoStart bundles are started in declared order, followed by the bundles of each declared start level in
+ * ascending order. The level only orders the bootstrap, it does not change the framework start level of a bundle.
+ * 
+ * <pre>
+ *    org.jboss.osgi.framework.bootstrapThreads=4
+ *    org.jboss.osgi.framework.autoStart.1=file://${bundles}/logging.jar
+ *    org.jboss.osgi.framework.autoStart.2=file://${bundles}/jmx.jar file://${bundles}/webapp.jar
+ * </pre>
+ * 
+ * With more than one bootstrap thread the auto bundles are installed concurrently and the bundles of one start level
+ * are started concurrently. Bundle ids are then no longer assigned in declared order.
+ * 
  * @author thomas.diesler@jboss.com
  * @since 24-Apr-2009
  */
@@ -106,17 +126,35 @@ public class PropertiesBootstrapProvider implements OSGiBootstrapProvider {
     public static final String PROP_OSGI_FRAMEWORK_AUTO_INSTALL = "org.jboss.osgi.framework.autoInstall";
     /** Optional list of bundles that get started automatically: org.jboss.osgi.framework.autoStart */
     public static final String PROP_OSGI_FRAMEWORK_AUTO_START = "org.jboss.osgi.framework.autoStart";
+    /** Optional prefix of the bundle lists that get started at a bootstrap start level: org.jboss.osgi.framework.autoStart.[level] */
+    public static final String PROP_OSGI_FRAMEWORK_AUTO_START_LEVEL_PREFIX = PROP_OSGI_FRAMEWORK_AUTO_START + ".";
     /** Optional path to extra properties: org.jboss.osgi.framework.extra */
     public static final String PROP_OSGI_FRAMEWORK_EXTRA = "org.jboss.osgi.framework.extra";
+    /** Optional number of threads that install and start the auto bundles: org.jboss.osgi.framework.bootstrapThreads */
+    public static final String PROP_OSGI_FRAMEWORK_BOOTSTRAP_THREADS = "org.jboss.osgi.framework.bootstrapThreads";
+    /** Optional flag that enables lifecycle timing of the auto bundles, see {@link BundleInstrumentation}: org.jboss.osgi.framework.instrumentBundles */
+    public static final String PROP_OSGI_FRAMEWORK_INSTRUMENT_BUNDLES = "org.jboss.osgi.framework.instrumentBundles";
+    /** Optional file that receives the bootstrap timeline as Chrome trace JSON: org.jboss.osgi.framework.profileOutput */
+    public static final String PROP_OSGI_FRAMEWORK_PROFILE_OUTPUT = "org.jboss.osgi.framework.profileOutput";
+    /** Optional flag that reuses unchanged auto bundles from the framework storage: org.jboss.osgi.framework.warmRestart */
+    public static final String PROP_OSGI_FRAMEWORK_WARM_RESTART = "org.jboss.osgi.framework.warmRestart";
+    /** Optional system property that names the resolved configuration snapshot: org.jboss.osgi.framework.configSnapshot */
+    public static final String PROP_OSGI_FRAMEWORK_CONFIG_SNAPSHOT = "org.jboss.osgi.framework.configSnapshot";
 
     private static Set<String> internalProps = new HashSet<String>();
     static {
         internalProps.add(PROP_OSGI_FRAMEWORK_AUTO_INSTALL);
         internalProps.add(PROP_OSGI_FRAMEWORK_AUTO_START);
         internalProps.add(PROP_OSGI_FRAMEWORK_EXTRA);
+        internalProps.add(PROP_OSGI_FRAMEWORK_BOOTSTRAP_THREADS);
+        internalProps.add(PROP_OSGI_FRAMEWORK_INSTRUMENT_BUNDLES);
+        internalProps.add(PROP_OSGI_FRAMEWORK_PROFILE_OUTPUT);
+        internalProps.add(PROP_OSGI_FRAMEWORK_WARM_RESTART);
     }
 
+    private final BootstrapProfiler profiler = new BootstrapProfiler();
     private Framework framework;
+    private BootstrapConfigSnapshot configSnapshot;
     private boolean configured;
 
     public void configure() {
@@ -138,38 +176,117 @@ public class PropertiesBootstrapProvider implements OSGiBootstrapProvider {
         if (urlConfig == null)
             throw MESSAGES.illegalArgumentNull("config url");
 
-        Map<String, String> props = getBootstrapProperties(urlConfig);
+        beginProfile();
+        BootstrapProfiler.Span span = profiler.begin("bootstrap", "resolveConfig");
+        Map<String, String> props;
+        try {
+            props = getBootstrapProperties(urlConfig);
+        } finally {
+            span.end();
+        }
         initFrameworkInstance(props);
     }
 
     public void configure(InputStream streamConfig) {
-        Map<String, String> props = getBootstrapProperties(streamConfig);
+        beginProfile();
+        BootstrapProfiler.Span span = profiler.begin("bootstrap", "resolveConfig");
+        Map<String, String> props;
+        try {
+            props = getBootstrapProperties(streamConfig);
+        } finally {
+            span.end();
+        }
         initFrameworkInstance(props);
     }
 
+    /**
+     * Get the profiler that records the bootstrap timeline of this provider.
+     *
+     * The profiler records only if {@link #PROP_OSGI_FRAMEWORK_PROFILE_OUTPUT} is configured. It is cleared when the
+     * provider is configured and when the framework is started again.
+     */
+    public BootstrapProfiler getProfiler() {
+        return profiler;
+    }
+
+    // The configuration is resolved before it is known whether the profile is written
+    private void beginProfile() {
+        profiler.clear();
+        profiler.setEnabled(true);
+    }
+
     private void configureInternal(String resourceConfig) {
         if (resourceConfig == null)
             throw MESSAGES.illegalArgumentNull("resourceConfig");
 
+        beginProfile();
         Map<String, String> props;
-        URL urlConfig = Thread.currentThread().getContextClassLoader().getResource(resourceConfig);
-        if (urlConfig != null) {
-            props = getBootstrapProperties(urlConfig);
-        } else {
-            props = new HashMap<String, String>();
-            LOGGER.debugf("Bootstrap using framework defaults");
+        BootstrapProfiler.Span span = profiler.begin("bootstrap", "resolveConfig");
+        try {
+            URL urlConfig = Thread.currentThread().getContextClassLoader().getResource(resourceConfig);
+            if (urlConfig != null) {
+                props = getBootstrapProperties(urlConfig);
+            } else {
+                props = new HashMap<String, String>();
+                configSnapshot = null;
+                LOGGER.debugf("Bootstrap using framework defaults");
+            }
+        } finally {
+            span.end();
         }
         initFrameworkInstance(props);
     }
 
     private void initFrameworkInstance(final Map<String, String> props) {
+        final BootstrapConfigSnapshot snapshot = configSnapshot;
+        final String profileOutput = props.get(PROP_OSGI_FRAMEWORK_PROFILE_OUTPUT);
+        profiler.setEnabled(profileOutput != null && profileOutput.trim().length() > 0);
+
         // Load the framework instance
-        final Framework frameworkImpl = createFramework(props);
+        BootstrapProfiler.Span createSpan = profiler.begin("bootstrap", "createFramework");
+        final Framework frameworkImpl;
+        try {
+            frameworkImpl = createFramework(props);
+        } finally {
+            createSpan.end();
+        }
         framework = new GenericFrameworkWrapper<Framework>(frameworkImpl) {
 
+            private boolean started;
+
+            @Override
+            public void init() throws BundleException {
+                BootstrapProfiler.Span span = profiler.begin("bootstrap", "init");
+                try {
+                    super.init();
+                } finally {
+                    span.end();
+                }
+            }
+
             @Override
             public void start() throws BundleException {
-                super.start();
+                // A restart gets a timeline of its own
+                if (started)
+                    profiler.clear();
+                started = true;
+
+                BootstrapProfiler.Span span = profiler.begin("bootstrap", "start");
+                try {
+                    startInternal();
+                } finally {
+                    span.end();
+                }
+                writeProfile(profileOutput);
+            }
+
+            private void startInternal() throws BundleException {
+                BootstrapProfiler.Span span = profiler.begin("bootstrap", "startFramework");
+                try {
+                    super.start();
+                } finally {
+                    span.end();
+                }
 
                 // Get system bundle context
                 BundleContext context = getBundleContext();
@@ -177,36 +294,54 @@ public class PropertiesBootstrapProvider implements OSGiBootstrapProvider {
                     throw MESSAGES.bundleCannotOptainSystemContext();
 
                 // Init the the autoInstall URLs
-                List<URL> autoInstall = getBundleURLs(props, PROP_OSGI_FRAMEWORK_AUTO_INSTALL);
+                List<URL> autoInstall;
+                if (snapshot != null)
+                    autoInstall = snapshot.getAutoInstall();
+                else
+                    autoInstall = getBundleURLs(props, PROP_OSGI_FRAMEWORK_AUTO_INSTALL, null);
 
                 // Init the the autoStart URLs
-                List<URL> autoStart = getBundleURLs(props, PROP_OSGI_FRAMEWORK_AUTO_START);
+                List<URL> autoStart;
+                if (snapshot != null)
+                    autoStart = snapshot.getAutoStart();
+                else
+                    autoStart = getBundleURLs(props, PROP_OSGI_FRAMEWORK_AUTO_START, null);
 
-                Map<URL, Bundle> autoBundles = new HashMap<URL, Bundle>();
+                // Init the leveled autoStart URLs
+                SortedMap<Integer, List<URL>> autoStartLevels = getStartLevelURLs(props);
 
                 // Add the autoStart bundles to autoInstall
                 for (URL bundleURL : autoStart) {
                     autoInstall.add(bundleURL);
                 }
+                for (List<URL> bundleURLs : autoStartLevels.values()) {
+                    autoInstall.addAll(bundleURLs);
+                }
 
                 // Register system services
-                registerSystemServices(context);
-
-                // Install autoInstall bundles
-                for (URL bundleURL : autoInstall) {
-                    Bundle bundle = context.installBundle(bundleURL.toString());
-                    LOGGER.infoBundleInstalled(bundle.getBundleId(), bundle);
-                    autoBundles.put(bundleURL, bundle);
+                span = profiler.begin("bootstrap", "registerSystemServices");
+                try {
+                    registerSystemServices(context);
+                } finally {
+                    span.end();
                 }
 
-                // Start autoStart bundles
-                for (URL bundleURL : autoStart) {
-                    Bundle bundle = autoBundles.get(bundleURL);
-                    if (bundle != null) {
-                        bundle.start();
-                        LOGGER.infoBundleStarted(bundle.getBundleId(), bundle);
-                    }
+                // Register the optional bundle instrumentation
+                BundleInstrumentation instrumentation = null;
+                if (Boolean.parseBoolean(props.get(PROP_OSGI_FRAMEWORK_INSTRUMENT_BUNDLES))) {
+                    instrumentation = new BundleInstrumentation();
+                    context.addBundleListener(instrumentation);
+                    context.registerService(BundleInstrumentation.class.getName(), instrumentation, null);
                 }
+
+                // Match the bundles from a previous boot
+                AutoBundleState warmState = null;
+                if (Boolean.parseBoolean(props.get(PROP_OSGI_FRAMEWORK_WARM_RESTART)))
+                    warmState = new AutoBundleState(context);
+
+                // Install autoInstall bundles and start autoStart bundles
+                int threads = getBootstrapThreads(props);
+                new AutoBundleInstaller(context, threads, instrumentation, profiler, warmState).installAndStart(autoInstall, autoStart, autoStartLevels);
             }
 
             @Override
@@ -244,7 +379,57 @@ public class PropertiesBootstrapProvider implements OSGiBootstrapProvider {
         // no default system services
     }
 
-    private List<URL> getBundleURLs(Map<String, String> props, String key) {
+    private void writeProfile(String path) {
+        if (path == null || path.trim().length() == 0)
+            return;
+
+        File file = new File(path.trim());
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            try {
+                profiler.writeChromeTrace(writer);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.warnCannotWriteBootstrapProfile(ex, file);
+        }
+    }
+
+    private int getBootstrapThreads(Map<String, String> props) {
+        String value = props.get(PROP_OSGI_FRAMEWORK_BOOTSTRAP_THREADS);
+        if (value == null || value.trim().length() == 0)
+            return 1;
+
+        try {
+            int threads = Integer.parseInt(value.trim());
+            if (threads < 1)
+                throw MESSAGES.illegalStateInvalidBootstrapThreads(value);
+            return threads;
+        } catch (NumberFormatException ex) {
+            throw MESSAGES.illegalStateInvalidBootstrapThreads(value);
+        }
+    }
+
+    private SortedMap<Integer, List<URL>> getStartLevelURLs(Map<String, String> props) {
+        SortedMap<Integer, List<URL>> result = new TreeMap<Integer, List<URL>>();
+        for (String key : props.keySet()) {
+            if (key.startsWith(PROP_OSGI_FRAMEWORK_AUTO_START_LEVEL_PREFIX)) {
+                int level;
+                try {
+                    level = Integer.parseInt(key.substring(PROP_OSGI_FRAMEWORK_AUTO_START_LEVEL_PREFIX.length()));
+                } catch (NumberFormatException ex) {
+                    throw MESSAGES.illegalStateInvalidStartLevel(key);
+                }
+                if (level < 1)
+                    throw MESSAGES.illegalStateInvalidStartLevel(key);
+                result.put(level, getBundleURLs(props, key, null));
+            }
+        }
+        return result;
+    }
+
+    private List<URL> getBundleURLs(Map<String, String> props, String key, PropertyProvider provider) {
         String bundleList = (String) props.get(key);
         if (bundleList == null)
             bundleList = "";
@@ -252,15 +437,19 @@ public class PropertiesBootstrapProvider implements OSGiBootstrapProvider {
         List<URL> bundleURLs = new ArrayList<URL>();
         for (String bundle : bundleList.split("[, ]")) {
             if (bundle.trim().length() > 0) {
-                URL installURL = toURL(bundle);
+                URL installURL = toURL(bundle, provider);
                 bundleURLs.add(installURL);
             }
         }
         return bundleURLs;
     }
 
-    private URL toURL(String path) {
-        String realPath = StringPropertyReplacer.replaceProperties(path);
+    private URL toURL(String path, PropertyProvider provider) {
+        String realPath;
+        if (provider != null)
+            realPath = StringPropertyReplacer.replaceProperties(path, provider);
+        else
+            realPath = StringPropertyReplacer.replaceProperties(path);
         try {
             URL pathURL = new URL(realPath);
             return pathURL;
@@ -277,10 +466,53 @@ public class PropertiesBootstrapProvider implements OSGiBootstrapProvider {
     }
 
     private Map<String, String> getBootstrapProperties(URL urlConfig) {
+        configSnapshot = null;
+        String snapshotPath = System.getProperty(PROP_OSGI_FRAMEWORK_CONFIG_SNAPSHOT);
+        if (snapshotPath == null || snapshotPath.trim().length() == 0)
+            return getBootstrapProperties(urlConfig, null, null);
+
+        // Use the snapshot if it is still valid
+        File snapshotFile = new File(snapshotPath.trim());
+        BootstrapConfigSnapshot snapshot = BootstrapConfigSnapshot.read(snapshotFile);
+        if (snapshot != null && snapshot.isValid(urlConfig)) {
+            LOGGER.debugf("Bootstrap using configuration snapshot: %s", snapshotFile);
+            configSnapshot = snapshot;
+            return snapshot.getProperties();
+        }
+
+        // Resolve the config and record the sources and system properties it depends on
+        RecordingPropertyProvider provider = new RecordingPropertyProvider();
+        List<URL> sources = new ArrayList<URL>();
+        Map<String, String> props = getBootstrapProperties(urlConfig, provider, sources);
+        List<URL> autoInstall;
+        List<URL> autoStart;
+        try {
+            autoInstall = getBundleURLs(props, PROP_OSGI_FRAMEWORK_AUTO_INSTALL, provider);
+            autoStart = getBundleURLs(props, PROP_OSGI_FRAMEWORK_AUTO_START, provider);
+        } catch (IllegalStateException ex) {
+            // An invalid bundle path is reported when the framework starts
+            return props;
+        }
+
+        snapshot = BootstrapConfigSnapshot.create(urlConfig, sources, provider, props, autoInstall, autoStart);
+        if (snapshot != null) {
+            try {
+                snapshot.write(snapshotFile);
+                configSnapshot = snapshot;
+            } catch (IOException ex) {
+                LOGGER.debugf(ex, "Cannot write bootstrap snapshot: %s", snapshotFile);
+            }
+        }
+        return props;
+    }
+
+    private Map<String, String> getBootstrapProperties(URL urlConfig, PropertyProvider provider, List<URL> sources) {
         Map<String, String> props = null;
         try {
             InputStream propStream = urlConfig.openStream();
-            props = getBootstrapProperties(propStream);
+            if (sources != null)
+                sources.add(urlConfig);
+            props = getBootstrapProperties(propStream, provider, sources);
             propStream.close();
         } catch (IOException ex) {
             throw MESSAGES.illegalStateCannotConfigureFrom(ex, urlConfig);
@@ -288,28 +520,36 @@ public class PropertiesBootstrapProvider implements OSGiBootstrapProvider {
         return props;
     }
 
-    @SuppressWarnings("unchecked")
     private Map<String, String> getBootstrapProperties(InputStream propStream) {
+        configSnapshot = null;
+        return getBootstrapProperties(propStream, null, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> getBootstrapProperties(InputStream propStream, PropertyProvider provider, List<URL> sources) {
         if (propStream == null)
             throw MESSAGES.illegalArgumentNull("propStream");
 
-        Map<String, String> propMap = new HashMap<String, String>();
+        Map<String, String> propMap;
         try {
             Properties props = new Properties();
             props.load(propStream);
             propStream.close();
 
             // Process property list
+            Map<String, String> rawMap = new HashMap<String, String>();
             Enumeration<String> keys = (Enumeration<String>) props.propertyNames();
             while (keys.hasMoreElements()) {
                 String key = keys.nextElement();
-                String value = props.getProperty(key);
-
-                // Replace property variables
-                value = StringPropertyReplacer.replaceProperties(value);
-                propMap.put(key, value);
+                rawMap.put(key, props.getProperty(key));
             }
 
+            // Replace property variables
+            if (provider != null)
+                propMap = StringPropertyReplacer.replaceProperties(rawMap, provider);
+            else
+                propMap = StringPropertyReplacer.replaceProperties(rawMap);
+
             // Merge optional extra properties
             String extraPropsValue = (String) propMap.get(PROP_OSGI_FRAMEWORK_EXTRA);
             if (extraPropsValue != null) {
@@ -332,8 +572,15 @@ public class PropertiesBootstrapProvider implements OSGiBootstrapProvider {
                     throw MESSAGES.illegalStateInvalidPropertiesURL(extraPropsValue);
 
                 propMap.remove(PROP_OSGI_FRAMEWORK_EXTRA);
-                Map<String, String> extraProps = getBootstrapProperties(extraPropsURL.openStream());
-                propMap.putAll(extraProps);
+                BootstrapProfiler.Span span = profiler.begin("bootstrap", "mergeExtraProperties");
+                try {
+                    if (sources != null)
+                        sources.add(extraPropsURL);
+                    Map<String, String> extraProps = getBootstrapProperties(extraPropsURL.openStream(), provider, sources);
+                    propMap.putAll(extraProps);
+                } finally {
+                    span.end();
+                }
             }
         } catch (IOException ex) {
             throw MESSAGES.illegalStateCannotLoadProperties(ex);
@@ -0,0 +1,274 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.util;
+
+import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads selected headers from the main section of a manifest without building a {@link java.util.jar.Manifest}.
+ *
+ * For an archive the manifest entry is located through the zip central directory.
+ * The manifest is streamed and scanning stops at the end of the main section,
+ * or as soon as all requested headers have been found.
+ *
+ * The read and line buffers are reused per thread and header names are compared as bytes,
+ * so that only the result map and the values of the requested headers are allocated.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public final class ManifestHeaderScanner {
+
+    // Lines longer than this are not kept in the reused line buffer
+    private static final int MAX_RETAINED_LINE = 16 * 1024;
+
+    private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    // Hide ctor
+    private ManifestHeaderScanner() {
+    }
+
+    /**
+     * Scan the manifest of a bundle archive or exploded bundle directory.
+     *
+     * @param file The archive or directory
+     * @param headers The names of the requested headers
+     * @return The found headers keyed by the requested name, or null if there is no manifest
+     */
+    public static Map<String, String> scan(File file, String... headers) throws IOException {
+        if (file == null)
+            throw MESSAGES.illegalArgumentNull("file");
+
+        if (file.isDirectory()) {
+            File manifestFile = new File(file, JarFile.MANIFEST_NAME);
+            if (manifestFile.isFile() == false)
+                return null;
+
+            InputStream input = new FileInputStream(manifestFile);
+            try {
+                return scan(input, headers);
+            } finally {
+                input.close();
+            }
+        }
+
+        ZipFile zipFile = new ZipFile(file);
+        try {
+            ZipEntry entry = zipFile.getEntry(JarFile.MANIFEST_NAME);
+            if (entry == null)
+                return null;
+
+            InputStream input = zipFile.getInputStream(entry);
+            try {
+                return scan(input, headers);
+            } finally {
+                input.close();
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    /**
+     * Scan the manifest of a bundle archive given as a stream of zip content.
+     *
+     * @param archive The archive stream, which is not closed
+     * @param headers The names of the requested headers
+     * @return The found headers keyed by the requested name, or null if there is no manifest
+     */
+    public static Map<String, String> scanArchive(InputStream archive, String... headers) throws IOException {
+        if (archive == null)
+            throw MESSAGES.illegalArgumentNull("archive");
+
+        ZipInputStream input = new ZipInputStream(archive);
+        ZipEntry entry = input.getNextEntry();
+        while (entry != null) {
+            if (JarFile.MANIFEST_NAME.equalsIgnoreCase(entry.getName()))
+                return scan(input, headers);
+
+            entry = input.getNextEntry();
+        }
+        return null;
+    }
+
+    /**
+     * Scan the main section of the given manifest stream.
+     *
+     * @param manifest The manifest stream, which is not closed
+     * @param headers The names of the requested headers
+     * @return The found headers keyed by the requested name
+     */
+    public static Map<String, String> scan(InputStream manifest, String... headers) throws IOException {
+        if (manifest == null)
+            throw MESSAGES.illegalArgumentNull("manifest");
+        if (headers == null)
+            throw MESSAGES.illegalArgumentNull("headers");
+
+        Map<String, String> result = new HashMap<String, String>();
+        if (headers.length == 0)
+            return result;
+
+        Scratch buffer = scratch.get();
+        buffer.reset(manifest);
+        try {
+            boolean endOfSection = false;
+            while (endOfSection == false && result.size() < headers.length) {
+                int c = buffer.read();
+
+                // A continuation line starts with a single space
+                if (c == ' ' && buffer.length > 0) {
+                    buffer.readLine();
+                    continue;
+                }
+
+                // The previous header is complete
+                if (buffer.length > 0) {
+                    addHeader(buffer, headers, result);
+                    buffer.length = 0;
+                }
+
+                if (c == -1 || c == '\r' || c == '\n') {
+                    endOfSection = true;
+                } else {
+                    buffer.append(c);
+                    buffer.readLine();
+                }
+            }
+        } finally {
+            buffer.release();
+        }
+        return result;
+    }
+
+    private static void addHeader(Scratch buffer, String[] headers, Map<String, String> result) throws IOException {
+        byte[] line = buffer.line;
+        int colon = 0;
+        while (colon < buffer.length && line[colon] != ':') {
+            colon++;
+        }
+        if (colon == 0 || colon == buffer.length)
+            return;
+
+        for (String aux : headers) {
+            if (nameEquals(line, colon, aux) && result.containsKey(aux) == false) {
+                result.put(aux, new String(line, colon + 1, buffer.length - colon - 1, "UTF-8").trim());
+                return;
+            }
+        }
+    }
+
+    // Header names are ASCII, compare them ignoring case without decoding the line
+    private static boolean nameEquals(byte[] line, int length, String name) {
+        if (name.length() != length)
+            return false;
+
+        for (int i = 0; i < length; i++) {
+            int a = line[i];
+            int b = name.charAt(i);
+            if (a != b) {
+                if (a >= 'A' && a <= 'Z')
+                    a += 'a' - 'A';
+                if (b >= 'A' && b <= 'Z')
+                    b += 'a' - 'A';
+                if (a != b)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The read and line buffers of one thread
+     */
+    private static final class Scratch {
+
+        private final byte[] buffer = new byte[8192];
+        private InputStream input;
+        private int position;
+        private int limit;
+        private byte[] line = new byte[256];
+        private int length;
+
+        void reset(InputStream input) {
+            this.input = input;
+            position = 0;
+            limit = 0;
+            length = 0;
+        }
+
+        void release() {
+            input = null;
+            if (line.length > MAX_RETAINED_LINE)
+                line = new byte[256];
+        }
+
+        int read() throws IOException {
+            if (position == limit) {
+                limit = input.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        void readLine() throws IOException {
+            int c = read();
+            while (c != -1 && c != '\n' && c != '\r') {
+                append(c);
+                c = read();
+            }
+            if (c == '\r') {
+                // Push back anything but the LF of a CRLF
+                if (read() != '\n' && limit > 0)
+                    position--;
+            }
+        }
+
+        void append(int c) {
+            if (length == line.length) {
+                byte[] grown = new byte[line.length * 2];
+                System.arraycopy(line, 0, grown, 0, length);
+                line = grown;
+            }
+            line[length++] = (byte) c;
+        }
+    }
+}
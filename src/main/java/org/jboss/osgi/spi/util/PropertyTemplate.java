@@ -0,0 +1,283 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.util;
+
+import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.jboss.osgi.spi.util.StringPropertyReplacer.PropertyProvider;
+
+/**
+ * A string with ${} property references that has been parsed into literal and placeholder segments.
+ *
+ * A template is immutable and can be evaluated concurrently against any number of providers.
+ * The supported reference syntax is described in {@link StringPropertyReplacer#replaceProperties(String, PropertyProvider)}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public final class PropertyTemplate {
+
+    /** File separator alias */
+    private static final String FILE_SEPARATOR_ALIAS = "/";
+
+    /** Path separator alias */
+    private static final String PATH_SEPARATOR_ALIAS = ":";
+
+    // States used in property parsing
+    private static final int NORMAL = 0;
+    private static final int SEEN_DOLLAR = 1;
+    private static final int IN_BRACKET = 2;
+
+    private final String string;
+    // Either a literal String or a Placeholder
+    private final Object[] segments;
+    private final int placeholderCount;
+    private final int literalLength;
+
+    /**
+     * Parse the given string into a template.
+     */
+    public static PropertyTemplate compile(String string) {
+        if (string == null)
+            throw MESSAGES.illegalArgumentNull("string");
+
+        List<Object> segments = new ArrayList<Object>();
+        int length = string.length();
+        int state = NORMAL;
+        int start = 0;
+        for (int i = 0; i < length; ++i) {
+            char c = string.charAt(i);
+
+            // Dollar sign outside brackets
+            if (c == '$' && state != IN_BRACKET)
+                state = SEEN_DOLLAR;
+
+            // Open bracket immediatley after dollar
+            else if (c == '{' && state == SEEN_DOLLAR) {
+                addLiteral(segments, string, start, i - 1);
+                state = IN_BRACKET;
+                start = i - 1;
+            }
+
+            // No open bracket after dollar
+            else if (state == SEEN_DOLLAR)
+                state = NORMAL;
+
+            // Closed bracket after open bracket
+            else if (c == '}' && state == IN_BRACKET) {
+                // No content
+                if (start + 2 == i) {
+                    addLiteral(segments, "${}", 0, 3);
+                } else {
+                    segments.add(new Placeholder(string.substring(start + 2, i)));
+                }
+                start = i + 1;
+                state = NORMAL;
+            }
+        }
+
+        // Collect the trailing characters
+        addLiteral(segments, string, start, length);
+
+        return new PropertyTemplate(string, segments.toArray());
+    }
+
+    private PropertyTemplate(String string, Object[] segments) {
+        this.string = string;
+        this.segments = segments;
+
+        int placeholders = 0;
+        int literals = 0;
+        for (Object segment : segments) {
+            if (segment instanceof Placeholder)
+                placeholders++;
+            else
+                literals += ((String) segment).length();
+        }
+        this.placeholderCount = placeholders;
+        this.literalLength = literals;
+    }
+
+    /**
+     * Get the string this template was compiled from
+     */
+    public String getString() {
+        return string;
+    }
+
+    /**
+     * True if this template contains property references
+     */
+    public boolean hasPlaceholders() {
+        return placeholderCount > 0;
+    }
+
+    /**
+     * Replace the property references with values from the given provider.
+     *
+     * @return The resolved string, or the template string if no reference could be resolved
+     */
+    public String evaluate(PropertyProvider provider) {
+        if (provider == null)
+            throw MESSAGES.illegalArgumentNull("provider");
+
+        if (placeholderCount == 0)
+            return string;
+
+        // Resolve the values first, so that the result can be built in a right-sized buffer
+        String[] values = new String[placeholderCount];
+        boolean properties = false;
+        int length = literalLength;
+        int index = 0;
+        for (Object segment : segments) {
+            if (segment instanceof Placeholder) {
+                Placeholder placeholder = (Placeholder) segment;
+                String value = placeholder.resolve(provider);
+                if (value != null) {
+                    properties = true;
+                    length += value.length();
+                } else {
+                    length += placeholder.key.length() + 3;
+                }
+                values[index++] = value;
+            }
+        }
+
+        // No properties
+        if (properties == false)
+            return string;
+
+        StringBuilder builder = new StringBuilder(length);
+        index = 0;
+        for (Object segment : segments) {
+            if (segment instanceof Placeholder) {
+                String value = values[index++];
+                if (value != null) {
+                    builder.append(value);
+                } else {
+                    builder.append("${").append(((Placeholder) segment).key).append('}');
+                }
+            } else {
+                builder.append((String) segment);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Add the keys that evaluating this template may request from a provider.
+     */
+    void collectKeys(Set<String> keys) {
+        for (Object segment : segments) {
+            if (segment instanceof Placeholder) {
+                Placeholder placeholder = (Placeholder) segment;
+                if (placeholder.alias == null) {
+                    keys.add(placeholder.key);
+                    if (placeholder.key1 != null)
+                        keys.add(placeholder.key1);
+                    if (placeholder.key2 != null)
+                        keys.add(placeholder.key2);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return string;
+    }
+
+    private static void addLiteral(List<Object> segments, String string, int start, int end) {
+        if (end > start)
+            segments.add(string.substring(start, end));
+    }
+
+    /**
+     * A ${key}, ${key:default}, ${key1,key2} or ${key1,key2:default} reference
+     */
+    static final class Placeholder {
+
+        final String key;
+        final String defaultValue;
+        // The parts of a composite key, or null
+        final String key1;
+        final String key2;
+        final boolean composite;
+        final String alias;
+
+        Placeholder(String key) {
+            this.key = key;
+
+            // check for alias
+            if (FILE_SEPARATOR_ALIAS.equals(key)) {
+                alias = File.separator;
+            } else if (PATH_SEPARATOR_ALIAS.equals(key)) {
+                alias = File.pathSeparator;
+            } else {
+                alias = null;
+            }
+
+            // Check for a default value ${key:default}
+            // The key without the default value
+            String realKey = key;
+            int colon = key.indexOf(':');
+            if (colon > 0) {
+                realKey = key.substring(0, colon);
+                defaultValue = key.substring(colon + 1);
+            } else {
+                defaultValue = null;
+            }
+
+            // Check for a composite key, "key1,key2"
+            int comma = realKey.indexOf(',');
+            composite = comma > -1;
+            key1 = composite && comma > 0 ? realKey.substring(0, comma) : null;
+            key2 = composite && comma < realKey.length() - 1 ? realKey.substring(comma + 1) : null;
+        }
+
+        String resolve(PropertyProvider provider) {
+            if (alias != null)
+                return alias;
+
+            // The full key comes first, also for ${key:default}
+            String value = provider.getProperty(key);
+
+            // Only the parts of a composite key are looked up without the default
+            if (value == null && composite) {
+                if (key1 != null)
+                    value = provider.getProperty(key1);
+                if (value == null && key2 != null)
+                    value = provider.getProperty(key2);
+            }
+
+            if (value == null)
+                value = defaultValue;
+
+            return value;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.util;
+
+import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.osgi.spi.util.StringPropertyReplacer.PropertyProvider;
+
+/**
+ * Replaces ${} property references recursively.
+ *
+ * Unlike {@link StringPropertyReplacer#replaceProperties(String, PropertyProvider)} this resolver
+ * <ul>
+ * <li>expands references that are contained in resolved property values</li>
+ * <li>supports nested references in keys and defaults, e.g. ${a:${b}} or ${${env}.host}</li>
+ * <li>detects cyclic references and fails with an {@link IllegalStateException}</li>
+ * </ul>
+ *
+ * A resolver is a resolution session. It memoizes the resolved value of every key, so that each
+ * key is requested from the provider at most once. A resolver is not thread safe.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public final class RecursivePropertyResolver {
+
+    /** File separator alias */
+    private static final String FILE_SEPARATOR_ALIAS = "/";
+
+    /** Path separator alias */
+    private static final String PATH_SEPARATOR_ALIAS = ":";
+
+    // Marks a key that has no value in the memo
+    private static final String NO_VALUE = new String();
+
+    private final PropertyProvider provider;
+    private final Map<String, String> memo = new HashMap<String, String>();
+    private final Set<String> resolving = new LinkedHashSet<String>();
+
+    public RecursivePropertyResolver(PropertyProvider provider) {
+        if (provider == null)
+            throw MESSAGES.illegalArgumentNull("provider");
+        this.provider = provider;
+    }
+
+    /**
+     * Replace all property references in the given string.
+     *
+     * @param string - the string with possible ${} references
+     * @return the input string with all property references replaced if any. If there are no valid references the input string
+     *         will be returned.
+     * @throws IllegalStateException if the references are cyclic
+     */
+    public String resolve(String string) {
+        if (string == null)
+            throw MESSAGES.illegalArgumentNull("string");
+
+        int index = string.indexOf("${");
+        if (index < 0)
+            return string;
+
+        StringBuilder builder = new StringBuilder(string.length() + 16);
+        boolean properties = false;
+        int start = 0;
+        while (index >= 0) {
+            int end = findClosingBracket(string, index + 2);
+
+            // Unterminated reference
+            if (end < 0)
+                break;
+
+            builder.append(string, start, index);
+            String expression = string.substring(index + 2, end);
+            String value = expression.length() > 0 ? resolveExpression(expression) : null;
+            if (value != null) {
+                properties = true;
+                builder.append(value);
+            } else {
+                builder.append(string, index, end + 1);
+            }
+            start = end + 1;
+            index = string.indexOf("${", start);
+        }
+
+        // No properties
+        if (properties == false)
+            return string;
+
+        // Collect the trailing characters
+        builder.append(string, start, string.length());
+        return builder.toString();
+    }
+
+    /**
+     * Get the recursively resolved value of the given key.
+     *
+     * @return The value or null if there is no such property
+     * @throws IllegalStateException if the references are cyclic
+     */
+    public String getProperty(String key) {
+        if (key == null)
+            throw MESSAGES.illegalArgumentNull("key");
+
+        String value = memo.get(key);
+        if (value == null) {
+            if (resolving.add(key) == false)
+                throw MESSAGES.illegalStateCyclicPropertyReference(cycleOf(key));
+
+            try {
+                value = provider.getProperty(key);
+                value = value != null ? resolve(value) : NO_VALUE;
+            } finally {
+                resolving.remove(key);
+            }
+            memo.put(key, value);
+        }
+        return value != NO_VALUE ? value : null;
+    }
+
+    private String resolveExpression(String expression) {
+        // check for alias
+        if (FILE_SEPARATOR_ALIAS.equals(expression))
+            return File.separator;
+        if (PATH_SEPARATOR_ALIAS.equals(expression))
+            return File.pathSeparator;
+
+        // Split off the default value ${key:default}
+        String key = expression;
+        String defaultValue = null;
+        int colon = indexOfTopLevel(expression, ':');
+        if (colon > 0) {
+            key = expression.substring(0, colon);
+            defaultValue = expression.substring(colon + 1);
+        }
+
+        // The key may itself contain references
+        key = resolve(key);
+
+        String value = getProperty(key);
+
+        // Check for a composite key, "key1,key2"
+        if (value == null) {
+            int comma = key.indexOf(',');
+            if (comma > -1) {
+                if (comma > 0)
+                    value = getProperty(key.substring(0, comma));
+                if (value == null && comma < key.length() - 1)
+                    value = getProperty(key.substring(comma + 1));
+            }
+        }
+
+        // The default is only resolved when it is used
+        if (value == null && defaultValue != null)
+            value = resolve(defaultValue);
+
+        return value;
+    }
+
+    private String cycleOf(String key) {
+        StringBuilder builder = new StringBuilder();
+        boolean inCycle = false;
+        for (String aux : resolving) {
+            inCycle = inCycle || aux.equals(key);
+            if (inCycle)
+                builder.append(aux).append(" -> ");
+        }
+        return builder.append(key).toString();
+    }
+
+    // Find the closing bracket for a reference that starts before the given index, skipping nested references
+    private static int findClosingBracket(String string, int index) {
+        int depth = 1;
+        int length = string.length();
+        for (int i = index; i < length; i++) {
+            char c = string.charAt(i);
+            if (c == '$' && i + 1 < length && string.charAt(i + 1) == '{') {
+                depth++;
+                i++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Find the given char outside of nested references
+    private static int indexOfTopLevel(String string, char ch) {
+        int depth = 0;
+        int length = string.length();
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c == '$' && i + 1 < length && string.charAt(i + 1) == '{') {
+                depth++;
+                i++;
+            } else if (c == '}' && depth > 0) {
+                depth--;
+            } else if (c == ch && depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -47,101 +47,348 @@ import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.jboss.osgi.spi.SPIEvents;
+import org.jboss.osgi.spi.SPIEvents.Type;
 
 /**
  * Loads service implementations from the classpath that defines the service class.
  *
+ * The provider class names are read from the first META-INF/services/${serviceClass} resource of the class loader.
+ * If the classpath root of that resource also contains a {@link #SERVICE_INDEX}, as generated by the jbosgi-spi-tools
+ * ServiceIndexGenerator, the class names are taken from the index instead of reading the services file. An index is
+ * read once per class loader and only applies to the root it was found in.
+ * The index can be disabled with the system property org.jboss.osgi.spi.util.serviceIndex=false.
+ *
+ * The provider class names are cached per service class name and class loader.
+ * The cache does not prevent class loaders from being garbage collected. Use {@link #invalidate(ClassLoader)}
+ * when the services of a class loader change.
+ *
  * @author Thomas.Diesler@jboss.com
  * @since 14-Dec-2006
  */
 public final class ServiceLoader {
 
+    /** The service index resource: META-INF/jbosgi-services.index */
+    public static final String SERVICE_INDEX = "META-INF/jbosgi-services.index";
+
+    private static final boolean useServiceIndex = Boolean.parseBoolean(SecurityActions.getSystemProperty("org.jboss.osgi.spi.util.serviceIndex", "true"));
+
+    // The provider class names per class loader and service class name
+    private static final Map<ClassLoader, Map<String, List<String>>> providerCache = new WeakHashMap<ClassLoader, Map<String, List<String>>>();
+    // The service indices per class loader and classpath root
+    private static final Map<ClassLoader, Map<String, Map<String, List<String>>>> indexCache = new WeakHashMap<ClassLoader, Map<String, Map<String, List<String>>>>();
+
     // Hide ctor
     private ServiceLoader() {
     }
 
+    /**
+     * Creates instances of a service implementation on demand.
+     */
+    public static final class ServiceSupplier<T> {
+
+        private final Class<T> serviceClass;
+        private final ClassLoader loader;
+        private final String className;
+
+        private ServiceSupplier(Class<T> serviceClass, ClassLoader loader, String className) {
+            this.serviceClass = serviceClass;
+            this.loader = loader;
+            this.className = className;
+        }
+
+        /**
+         * Get the name of the implementation class
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * Create a new instance of the service implementation
+         *
+         * @throws IllegalStateException if the class cannot be loaded, is not assignable to the service class, or cannot be instantiated
+         */
+        public T get() {
+            try {
+                Class<?> implClass = loader.loadClass(className);
+                if (serviceClass.isAssignableFrom(implClass) == false) {
+                    LOGGER.warnServiceNotAssignable(className);
+                    throw MESSAGES.illegalStateCannotLoadServiceClass(null, className);
+                }
+                return serviceClass.cast(implClass.newInstance());
+            } catch (IllegalStateException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw MESSAGES.illegalStateCannotLoadServiceClass(ex, className);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return className;
+        }
+    }
+
     /**
      * Loads a list of service implementations defined in META-INF/services/${serviceClass}
      *
      * @param serviceClass The interface that is implemented by all loaded services
      * @return The list of available service or an empty list
      */
-    @SuppressWarnings("unchecked")
     public static <T> List<T> loadServices(Class<T> serviceClass) {
+        long start = SPIEvents.begin();
+        boolean success = false;
+        try {
+            List<ServiceSupplier<T>> suppliers = loadServiceSuppliers(serviceClass);
+            boolean mandatory = isSystemPropertyDefined(serviceClass);
+            List<T> services = new ArrayList<T>(suppliers.size());
+            for (ServiceSupplier<T> supplier : suppliers) {
+                T service = getService(supplier, mandatory);
+                if (service != null)
+                    services.add(service);
+            }
+            success = true;
+            return Collections.unmodifiableList(services);
+        } finally {
+            SPIEvents.end(Type.SERVICE_LOOKUP, start, serviceClass != null ? serviceClass.getName() : null, null, success);
+        }
+    }
+
+    /**
+     * Loads the first of a list of service implementations defined in META-INF/services/${serviceClass}
+     *
+     * Only the returned service is instantiated.
+     *
+     * @param serviceClass The interface that is implemented by all loaded services
+     * @return The first available service or null
+     */
+    public static <T> T loadService(Class<T> serviceClass) {
+        long start = SPIEvents.begin();
+        boolean success = false;
+        try {
+            List<ServiceSupplier<T>> suppliers = loadServiceSuppliers(serviceClass);
+            boolean mandatory = isSystemPropertyDefined(serviceClass);
+            T result = null;
+            for (ServiceSupplier<T> supplier : suppliers) {
+                result = getService(supplier, mandatory);
+                if (result != null)
+                    break;
+            }
+            success = true;
+            return result;
+        } finally {
+            SPIEvents.end(Type.SERVICE_LOOKUP, start, serviceClass != null ? serviceClass.getName() : null, null, success);
+        }
+    }
+
+    /**
+     * Loads the suppliers of the service implementations defined in META-INF/services/${serviceClass}
+     *
+     * No service implementation is loaded or instantiated until {@link ServiceSupplier#get()} is called.
+     * If the system property ${serviceClass} is defined, it names the only supplier.
+     *
+     * @param serviceClass The interface that is implemented by all loaded services
+     * @return The list of available suppliers or an empty list
+     */
+    public static <T> List<ServiceSupplier<T>> loadServiceSuppliers(Class<T> serviceClass) {
         if (serviceClass == null)
             throw MESSAGES.illegalArgumentNull("serviceClass");
 
-        List<T> services = new ArrayList<T>();
         ClassLoader loader = serviceClass.getClassLoader();
+        List<ServiceSupplier<T>> suppliers = new ArrayList<ServiceSupplier<T>>();
 
         // First try the system property
         String serviceClassName = System.getProperty(serviceClass.getName());
         if (serviceClassName != null) {
-            try {
-                Class<T> implClass = (Class<T>) loader.loadClass(serviceClassName);
-                services.add(implClass.newInstance());
-                return Collections.unmodifiableList(services);
-            } catch (Exception ex) {
-                throw MESSAGES.illegalStateCannotLoadServiceClass(ex, serviceClassName);
+            suppliers.add(new ServiceSupplier<T>(serviceClass, loader, serviceClassName));
+            return Collections.unmodifiableList(suppliers);
+        }
+
+        for (String implClassName : getProviderClassNames(serviceClass, loader)) {
+            suppliers.add(new ServiceSupplier<T>(serviceClass, loader, implClassName));
+        }
+        return Collections.unmodifiableList(suppliers);
+    }
+
+    /**
+     * Removes the cached provider class names of the given class loader
+     */
+    public static void invalidate(ClassLoader loader) {
+        if (loader == null)
+            throw MESSAGES.illegalArgumentNull("loader");
+
+        synchronized (providerCache) {
+            providerCache.remove(loader);
+            indexCache.remove(loader);
+        }
+    }
+
+    /**
+     * Removes all cached provider class names
+     */
+    public static void invalidateAll() {
+        synchronized (providerCache) {
+            providerCache.clear();
+            indexCache.clear();
+        }
+    }
+
+    private static boolean isSystemPropertyDefined(Class<?> serviceClass) {
+        return System.getProperty(serviceClass.getName()) != null;
+    }
+
+    private static <T> T getService(ServiceSupplier<T> supplier, boolean mandatory) {
+        // A service that is explicitly defined by system property must be loadable
+        if (mandatory)
+            return supplier.get();
+
+        try {
+            return supplier.get();
+        } catch (IllegalStateException ex) {
+            LOGGER.debugf(ex, "Cannot load service: %s", supplier.getClassName());
+            return null;
+        }
+    }
+
+    private static List<String> getProviderClassNames(Class<?> serviceClass, ClassLoader loader) {
+        String serviceName = serviceClass.getName();
+        synchronized (providerCache) {
+            Map<String, List<String>> loaderCache = providerCache.get(loader);
+            List<String> classNames = loaderCache != null ? loaderCache.get(serviceName) : null;
+            if (classNames != null)
+                return classNames;
+        }
+
+        List<String> classNames = readProviderClassNames(serviceName, loader);
+
+        synchronized (providerCache) {
+            Map<String, List<String>> loaderCache = providerCache.get(loader);
+            if (loaderCache == null) {
+                loaderCache = new HashMap<String, List<String>>();
+                providerCache.put(loader, loaderCache);
             }
+            loaderCache.put(serviceName, classNames);
         }
+        return classNames;
+    }
 
-        // Use the Services API (as detailed in the JAR specification), if available, to determine the classname.
-        String filename = "META-INF/services/" + serviceClass.getName();
-        InputStream inStream = loader.getResourceAsStream(filename);
-        if (inStream == null)
-            LOGGER.debugf("Cannot find resource: %s", filename);
+    private static Map<String, Map<String, List<String>>> getServiceIndices(ClassLoader loader) {
+        synchronized (providerCache) {
+            Map<String, Map<String, List<String>>> indices = indexCache.get(loader);
+            if (indices != null)
+                return indices;
+        }
+
+        Map<String, Map<String, List<String>>> indices = readServiceIndices(loader);
+        synchronized (providerCache) {
+            indexCache.put(loader, indices);
+        }
+        return indices;
+    }
+
+    private static Map<String, Map<String, List<String>>> readServiceIndices(ClassLoader loader) {
+        Enumeration<URL> urls;
+        try {
+            urls = loader.getResources(SERVICE_INDEX);
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot find service index: %s", SERVICE_INDEX);
+            return Collections.emptyMap();
+        }
 
-        if (inStream != null) {
+        // Each index is kept with the classpath root that contains it
+        Map<String, Map<String, List<String>>> indices = new HashMap<String, Map<String, List<String>>>();
+        while (urls.hasMoreElements()) {
+            URL url = urls.nextElement();
+            String root = getRoot(url, SERVICE_INDEX);
+            if (root == null || indices.containsKey(root))
+                continue;
             try {
-                BufferedReader br = new BufferedReader(new InputStreamReader(inStream, "UTF-8"));
-                String implClassName = br.readLine();
-                while (implClassName != null) {
-                    int hashIndex = implClassName.indexOf("#");
-                    if (hashIndex >= 0)
-                        implClassName = implClassName.substring(0, hashIndex);
-
-                    implClassName = implClassName.trim();
-
-                    if (implClassName.length() > 0) {
-                        try {
-                            Class<T> implClass = (Class<T>) loader.loadClass(implClassName);
-                            if (serviceClass.isAssignableFrom(implClass))
-                                services.add(implClass.newInstance());
-                            else
-                                LOGGER.warnServiceNotAssignable(implClassName);
-                        } catch (Exception ex) {
-                            LOGGER.debugf(ex, "Cannot load service: %s", implClassName);
-                        }
-                    }
+                indices.put(root, readServiceIndex(url));
+            } catch (IOException ex) {
+                LOGGER.debugf(ex, "Cannot read service index: %s", url);
+            }
+        }
+        return indices;
+    }
 
-                    implClassName = br.readLine();
+    private static Map<String, List<String>> readServiceIndex(URL url) throws IOException {
+        Map<String, List<String>> index = new HashMap<String, List<String>>();
+        BufferedReader br = new BufferedReader(new InputStreamReader(url.openStream(), "UTF-8"));
+        try {
+            String line = br.readLine();
+            while (line != null) {
+                int eqIndex = line.indexOf('=');
+                if (line.startsWith("#") == false && eqIndex > 0) {
+                    List<String> classNames = new ArrayList<String>();
+                    for (String implClassName : line.substring(eqIndex + 1).split(",")) {
+                        implClassName = implClassName.trim();
+                        if (implClassName.length() > 0)
+                            classNames.add(implClassName);
+                    }
+                    index.put(line.substring(0, eqIndex).trim(), Collections.unmodifiableList(classNames));
                 }
-                br.close();
-            } catch (IOException ex) {
-                throw MESSAGES.illegalStateCannotLoadServiceClass(ex, serviceClassName);
+                line = br.readLine();
             }
+        } finally {
+            br.close();
         }
+        return index;
+    }
 
-        return Collections.unmodifiableList(services);
+    private static String getRoot(URL url, String resource) {
+        String path = url.toExternalForm();
+        return path.endsWith(resource) ? path.substring(0, path.length() - resource.length()) : null;
     }
 
-    /**
-     * Loads the first of a list of service implementations defined in META-INF/services/${serviceClass}
-     *
-     * @param serviceClass The interface that is implemented by all loaded services
-     * @return The first available service or null
-     */
-    public static <T> T loadService(Class<T> serviceClass) {
-        List<T> services = loadServices(serviceClass);
-        if (services.isEmpty())
-            return null;
+    private static List<String> readProviderClassNames(String serviceName, ClassLoader loader) {
+        // Use the Services API (as detailed in the JAR specification), if available, to determine the classname.
+        String filename = "META-INF/services/" + serviceName;
+        URL url = loader.getResource(filename);
+        if (url == null) {
+            LOGGER.debugf("Cannot find resource: %s", filename);
+            return Collections.emptyList();
+        }
 
-        return services.get(0);
+        // The index of the same classpath root replaces reading the services file
+        if (useServiceIndex) {
+            String root = getRoot(url, filename);
+            Map<String, List<String>> index = root != null ? getServiceIndices(loader).get(root) : null;
+            List<String> classNames = index != null ? index.get(serviceName) : null;
+            if (classNames != null)
+                return classNames;
+        }
+
+        List<String> classNames = new ArrayList<String>();
+        try {
+            BufferedReader br = new BufferedReader(new InputStreamReader(url.openStream(), "UTF-8"));
+            String implClassName = br.readLine();
+            while (implClassName != null) {
+                int hashIndex = implClassName.indexOf("#");
+                if (hashIndex >= 0)
+                    implClassName = implClassName.substring(0, hashIndex);
+
+                implClassName = implClassName.trim();
+
+                if (implClassName.length() > 0)
+                    classNames.add(implClassName);
+
+                implClassName = br.readLine();
+            }
+            br.close();
+        } catch (IOException ex) {
+            throw MESSAGES.illegalStateCannotLoadServiceClass(ex, serviceName);
+        }
+        return Collections.unmodifiableList(classNames);
     }
 }
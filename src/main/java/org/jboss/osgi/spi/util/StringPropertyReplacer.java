@@ -44,7 +44,15 @@ package org.jboss.osgi.spi.util;
 
 import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
 
-import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.osgi.framework.BundleContext;
 
@@ -65,28 +73,43 @@ public final class StringPropertyReplacer {
     /** New line string constant */
     public static final String NEWLINE = SecurityActions.getSystemProperty("line.separator", "\n");
 
-    /** File separator value */
-    private static final String FILE_SEPARATOR = File.separator;
+    /** The default maximum number of cached templates */
+    private static final int DEFAULT_TEMPLATE_CACHE_SIZE = 512;
 
-    /** Path separator value */
-    private static final String PATH_SEPARATOR = File.pathSeparator;
+    /** Maximum number of cached templates */
+    private static final int TEMPLATE_CACHE_SIZE = getTemplateCacheSize();
 
-    /** File separator alias */
-    private static final String FILE_SEPARATOR_ALIAS = "/";
-
-    /** Path separator alias */
-    private static final String PATH_SEPARATOR_ALIAS = ":";
-
-    // States used in property parsing
-    private static final int NORMAL = 0;
-    private static final int SEEN_DOLLAR = 1;
-    private static final int IN_BRACKET = 2;
+    // The compiled templates, an arbitrary entry is evicted when the cache is full
+    private static final ConcurrentMap<String, PropertyTemplate> templateCache = new ConcurrentHashMap<String, PropertyTemplate>();
+    private static final AtomicInteger templateCount = new AtomicInteger();
 
     public interface PropertyProvider {
 
         String getProperty(String key);
     }
 
+    /**
+     * A provider that can resolve many keys in one call.
+     */
+    public interface BatchPropertyProvider extends PropertyProvider {
+
+        /**
+         * Get the values for the given keys.
+         *
+         * @param keys The requested keys
+         * @return The values keyed by property key, keys without a value may be absent
+         */
+        Map<String, String> getProperties(Set<String> keys);
+    }
+
+    private static final PropertyProvider SYSTEM_PROPERTY_PROVIDER = new PropertyProvider() {
+
+        @Override
+        public String getProperty(String key) {
+            return System.getProperty(key);
+        }
+    };
+
     /**
      * Go through the input string and replace any occurance of ${p} with the System.getProperty(p) value. If there is no such
      * property p defined, then the ${p} reference will remain unchanged.
@@ -96,13 +119,7 @@ public final class StringPropertyReplacer {
      *         will be returned.
      */
     public static String replaceProperties(final String string) {
-        return replaceProperties(string, new PropertyProvider() {
-
-            @Override
-            public String getProperty(String key) {
-                return System.getProperty(key);
-            }
-        });
+        return replaceProperties(string, SYSTEM_PROPERTY_PROVIDER);
     }
 
     /**
@@ -114,6 +131,9 @@ public final class StringPropertyReplacer {
      *         will be returned.
      */
     public static String replaceProperties(final String string, final BundleContext context) {
+        if (string != null && string.indexOf("${") < 0)
+            return string;
+
         return replaceProperties(string, new PropertyProvider() {
 
             @Override
@@ -147,127 +167,175 @@ public final class StringPropertyReplacer {
         if (provider == null)
             throw MESSAGES.illegalArgumentNull("provider");
 
-        final char[] chars = string.toCharArray();
-        StringBuffer buffer = new StringBuffer();
-        boolean properties = false;
-        int state = NORMAL;
-        int start = 0;
-        for (int i = 0; i < chars.length; ++i) {
-            char c = chars[i];
-
-            // Dollar sign outside brackets
-            if (c == '$' && state != IN_BRACKET)
-                state = SEEN_DOLLAR;
-
-            // Open bracket immediatley after dollar
-            else if (c == '{' && state == SEEN_DOLLAR) {
-                buffer.append(string.substring(start, i - 1));
-                state = IN_BRACKET;
-                start = i - 1;
+        // No property references
+        if (string.indexOf("${") < 0)
+            return string;
+
+        return compile(string).evaluate(provider);
+    }
+
+    /**
+     * Replace the property references in all values of the given map with System properties.
+     * 
+     * @param values - the values with possible ${} references
+     * @return a new map with the same keys and all property references replaced if any
+     * @see #replaceProperties(Map, PropertyProvider)
+     */
+    public static Map<String, String> replaceProperties(final Map<String, String> values) {
+        return replaceProperties(values, SYSTEM_PROPERTY_PROVIDER);
+    }
+
+    /**
+     * Replace the property references in all values of the given map with BundleContext properties.
+     * 
+     * @param values - the values with possible ${} references
+     * @return a new map with the same keys and all property references replaced if any
+     * @see #replaceProperties(Map, PropertyProvider)
+     */
+    public static Map<String, String> replaceProperties(final Map<String, String> values, final BundleContext context) {
+        if (context == null)
+            throw MESSAGES.illegalArgumentNull("context");
+
+        return replaceProperties(values, new PropertyProvider() {
+
+            @Override
+            public String getProperty(String key) {
+                return context.getProperty(key);
             }
+        });
+    }
 
-            // No open bracket after dollar
-            else if (state == SEEN_DOLLAR)
-                state = NORMAL;
-
-            // Closed bracket after open bracket
-            else if (c == '}' && state == IN_BRACKET) {
-                // No content
-                if (start + 2 == i) {
-                    buffer.append("${}"); // REVIEW: Correct?
-                } else
-                // Collect the system property
-                {
-                    String value = null;
-
-                    String key = string.substring(start + 2, i);
-
-                    // check for alias
-                    if (FILE_SEPARATOR_ALIAS.equals(key)) {
-                        value = FILE_SEPARATOR;
-                    } else if (PATH_SEPARATOR_ALIAS.equals(key)) {
-                        value = PATH_SEPARATOR;
-                    } else {
-                        value = provider.getProperty(key);
-
-                        if (value == null) {
-                            // Check for a default value ${key:default}
-                            int colon = key.indexOf(':');
-                            if (colon > 0) {
-                                String realKey = key.substring(0, colon);
-                                value = provider.getProperty(key);
-
-                                if (value == null) {
-                                    // Check for a composite key, "key1,key2"
-                                    value = resolveCompositeKey(realKey, provider);
-
-                                    // Not a composite key either, use the specified default
-                                    if (value == null)
-                                        value = key.substring(colon + 1);
-                                }
-                            } else {
-                                // No default, check for a composite key, "key1,key2"
-                                value = resolveCompositeKey(key, provider);
-                            }
-                        }
-                    }
-
-                    if (value != null) {
-                        properties = true;
-                        buffer.append(value);
-                    } else {
-                        buffer.append("${");
-                        buffer.append(key);
-                        buffer.append('}');
-                    }
-
-                }
-                start = i + 1;
-                state = NORMAL;
+    /**
+     * Replace the property references in all values of the given map.
+     * 
+     * The keys referenced by all values are collected first and every key is requested from the provider only once. A
+     * {@link BatchPropertyProvider} is asked for all keys in a single call.
+     * 
+     * @param values - the values with possible ${} references
+     * @param provider - the source for ${x} property ref values
+     * @return a new map with the same keys and all property references replaced if any
+     * @see #replaceProperties(String, PropertyProvider)
+     */
+    public static Map<String, String> replaceProperties(final Map<String, String> values, final PropertyProvider provider) {
+        if (values == null)
+            throw MESSAGES.illegalArgumentNull("values");
+        if (provider == null)
+            throw MESSAGES.illegalArgumentNull("provider");
+
+        // Compile the values with property references and collect the referenced keys
+        Map<String, PropertyTemplate> templates = new HashMap<String, PropertyTemplate>();
+        Set<String> keys = new HashSet<String>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue();
+            if (value != null && value.indexOf("${") >= 0) {
+                PropertyTemplate template = compile(value);
+                template.collectKeys(keys);
+                templates.put(entry.getKey(), template);
             }
         }
 
-        // No properties
-        if (properties == false)
-            return string;
+        Map<String, String> result = new LinkedHashMap<String, String>(values);
+        if (templates.isEmpty())
+            return result;
+
+        // Resolve every referenced key once
+        final Map<String, String> resolved;
+        if (provider instanceof BatchPropertyProvider) {
+            resolved = ((BatchPropertyProvider) provider).getProperties(keys);
+        } else {
+            resolved = new HashMap<String, String>();
+            for (String key : keys) {
+                String value = provider.getProperty(key);
+                if (value != null)
+                    resolved.put(key, value);
+            }
+        }
+        PropertyProvider resolvedProvider = new PropertyProvider() {
 
-        // Collect the trailing characters
-        if (start != chars.length)
-            buffer.append(string.substring(start, chars.length));
+            @Override
+            public String getProperty(String key) {
+                return resolved.get(key);
+            }
+        };
 
-        // Done
-        return buffer.toString();
+        for (Map.Entry<String, PropertyTemplate> entry : templates.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().evaluate(resolvedProvider));
+        }
+        return result;
     }
 
     /**
-     * Try to resolve a "key" from the provided properties by checking if it is actually a "key1,key2", in which case try first
-     * "key1", then "key2". If all fails, return null.
+     * Go through the input string and replace any occurance of ${p} with the PropertyProvider.getProperty(p) value, and
+     * recursively replace the references contained in that value.
      * 
-     * It also accepts "key1," and ",key2".
+     * Nested references like ${a:${b}} are supported and cyclic references are detected.
      * 
-     * @param key the key to resolve
-     * @param props the properties to use
-     * @return the resolved key or null
+     * @param string - the string with possible ${} references
+     * @param provider - the source for ${x} property ref values
+     * @return the input string with all property references replaced if any. If there are no valid references the input string
+     *         will be returned.
+     * @throws IllegalStateException if the references are cyclic
+     * @see RecursivePropertyResolver
      */
-    private static String resolveCompositeKey(String key, PropertyProvider provider) {
-        String value = null;
-
-        // Look for the comma
-        int comma = key.indexOf(',');
-        if (comma > -1) {
-            // If we have a first part, try resolve it
-            if (comma > 0) {
-                // Check the first part
-                String key1 = key.substring(0, comma);
-                value = provider.getProperty(key1);
-            }
-            // Check the second part, if there is one and first lookup failed
-            if (value == null && comma < key.length() - 1) {
-                String key2 = key.substring(comma + 1);
-                value = provider.getProperty(key2);
+    public static String replacePropertiesRecursive(final String string, final PropertyProvider provider) {
+        if (string == null)
+            throw MESSAGES.illegalArgumentNull("string");
+        if (provider == null)
+            throw MESSAGES.illegalArgumentNull("provider");
+
+        // No property references
+        if (string.indexOf("${") < 0)
+            return string;
+
+        return new RecursivePropertyResolver(provider).resolve(string);
+    }
+
+    /**
+     * Get the compiled template for the given string.
+     *
+     * Templates are cached in a bounded concurrent cache, its size is given by the system property
+     * org.jboss.osgi.spi.util.templateCacheSize. When the cache is full an arbitrary template is evicted.
+     *
+     * @param string - the string with possible ${} references
+     * @return the compiled template
+     */
+    public static PropertyTemplate compile(final String string) {
+        if (string == null)
+            throw MESSAGES.illegalArgumentNull("string");
+
+        PropertyTemplate template = templateCache.get(string);
+        if (template == null) {
+            template = PropertyTemplate.compile(string);
+            PropertyTemplate existing = templateCache.putIfAbsent(string, template);
+            if (existing != null)
+                return existing;
+
+            if (templateCount.incrementAndGet() > TEMPLATE_CACHE_SIZE)
+                evictTemplate();
+        }
+        return template;
+    }
+
+    private static void evictTemplate() {
+        Iterator<String> keys = templateCache.keySet().iterator();
+        while (keys.hasNext()) {
+            if (templateCache.remove(keys.next()) != null) {
+                templateCount.decrementAndGet();
+                return;
             }
         }
-        // Return whatever we've found or null
-        return value;
     }
-}
\ No newline at end of file
+
+    private static int getTemplateCacheSize() {
+        String value = SecurityActions.getSystemProperty("org.jboss.osgi.spi.util.templateCacheSize", null);
+        if (value == null)
+            return DEFAULT_TEMPLATE_CACHE_SIZE;
+
+        try {
+            int size = Integer.parseInt(value.trim());
+            return size > 0 ? size : DEFAULT_TEMPLATE_CACHE_SIZE;
+        } catch (NumberFormatException ex) {
+            return DEFAULT_TEMPLATE_CACHE_SIZE;
+        }
+    }
+}
@@ -44,14 +44,28 @@ package org.jboss.osgi.spi.util;
 
 import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * An unmodifiable dictionary.
  * 
+ * The entries are held in flat key/value arrays together with their precomputed hashes. Lookups go through an
+ * open-addressing index and need no synchronization, because the contents never change after construction.
+ * 
  * @author thomas.diesler@jboss.com
  * @since 02-Dec-2009
  */
@@ -59,39 +73,78 @@ public class UnmodifiableDictionary<K, V> extends Dictionary<K, V> implements Se
 
     private static final long serialVersionUID = -6793757957920326746L;
 
-    private final Dictionary<K, V> delegate;
+    // Keep the serialized form of the original Hashtable based implementation
+    private static final ObjectStreamField[] serialPersistentFields = { new ObjectStreamField("delegate", Dictionary.class) };
+
+    private static final Object[] EMPTY = new Object[0];
+    private static final int[] EMPTY_INDEX = new int[1];
+
+    private final transient Object[] keys;
+    private final transient Object[] values;
+    private final transient int[] hashes;
+    // Slots hold the entry position + 1, zero marks a free slot
+    private final transient int[] index;
+    private final transient int size;
+    private final transient int hashCode;
+    private transient Map<K, V> mapView;
+    // Only set on the instance that is read from a stream, see readResolve()
+    private transient Dictionary<?, ?> serialized;
 
     public UnmodifiableDictionary(Dictionary<K, V> props) {
-        if (props == null)
-            throw MESSAGES.illegalArgumentNull("props");
+        this(Table.copyOf(props));
+    }
+
+    private UnmodifiableDictionary(Table table) {
+        keys = table.keys;
+        values = table.values;
+        hashes = table.hashes;
+        index = table.index;
+        size = table.size;
+        hashCode = table.hashCode;
+    }
+
+    /**
+     * Get an unmodifiable dictionary for the given properties. The given instance is returned if it is already unmodifiable.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> UnmodifiableDictionary<K, V> wrap(Dictionary<K, V> props) {
+        if (props instanceof UnmodifiableDictionary)
+            return (UnmodifiableDictionary<K, V>) props;
+        return new UnmodifiableDictionary<K, V>(props);
+    }
 
-        delegate = new Hashtable<K, V>();
-        Enumeration<K> keys = props.keys();
-        while (keys.hasMoreElements()) {
-            K key = keys.nextElement();
-            V val = props.get(key);
-            delegate.put(key, val);
+    /**
+     * Get an unmodifiable {@link Map} view that shares the entries of this dictionary
+     */
+    public Map<K, V> asMap() {
+        Map<K, V> result = mapView;
+        if (result == null) {
+            result = new MapView();
+            mapView = result;
         }
+        return result;
     }
 
     @Override
     public Enumeration<V> elements() {
-        return delegate.elements();
+        return new ArrayEnumeration<V>(values, size);
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public V get(Object key) {
-        return delegate.get(key);
+        int pos = indexOf(key);
+        return pos >= 0 ? (V) values[pos] : null;
     }
 
     @Override
     public boolean isEmpty() {
-        return delegate.isEmpty();
+        return size == 0;
     }
 
     @Override
     public Enumeration<K> keys() {
-        return delegate.keys();
+        return new ArrayEnumeration<K>(keys, size);
     }
 
     @Override
@@ -106,21 +159,263 @@ public class UnmodifiableDictionary<K, V> extends Dictionary<K, V> implements Se
 
     @Override
     public int size() {
-        return delegate.size();
+        return size;
     }
 
     @Override
     public int hashCode() {
-        return delegate.hashCode();
+        return hashCode;
     }
 
     @Override
     public boolean equals(Object obj) {
-        return delegate.equals(obj);
+        if (obj == this)
+            return true;
+        if (obj instanceof UnmodifiableDictionary)
+            obj = ((UnmodifiableDictionary<?, ?>) obj).asMap();
+        if (!(obj instanceof Map))
+            return false;
+        Map<?, ?> other = (Map<?, ?>) obj;
+        if (other.size() != size)
+            return false;
+        for (int i = 0; i < size; i++) {
+            if (!values[i].equals(other.get(keys[i])))
+                return false;
+        }
+        return true;
     }
 
     @Override
     public String toString() {
-        return delegate.toString();
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                builder.append(", ");
+            builder.append(keys[i]).append("=").append(values[i]);
+        }
+        return builder.append("}").toString();
+    }
+
+    private int indexOf(Object key) {
+        return indexOf(key, keys, hashes, index, size);
+    }
+
+    private static int indexOf(Object key, Object[] keys, int[] hashes, int[] index, int size) {
+        if (key == null || size == 0)
+            return -1;
+        int hash = spread(key.hashCode());
+        int mask = index.length - 1;
+        int slot = hash & mask;
+        int entry;
+        while ((entry = index[slot]) != 0) {
+            int pos = entry - 1;
+            if (hashes[pos] == hash && (keys[pos] == key || keys[pos].equals(key)))
+                return pos;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        Hashtable<Object, Object> delegate = new Hashtable<Object, Object>(Math.max(1, size * 2));
+        for (int i = 0; i < size; i++) {
+            delegate.put(keys[i], values[i]);
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("delegate", delegate);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        serialized = (Dictionary<?, ?>) fields.get("delegate", null);
+    }
+
+    // The final fields cannot be assigned while reading, the entries are rebuilt in a new instance instead
+    private Object readResolve() throws ObjectStreamException {
+        Dictionary<?, ?> delegate = serialized != null ? serialized : new Hashtable<Object, Object>();
+        return new UnmodifiableDictionary<Object, Object>(Table.copyOf(delegate));
+    }
+
+    /**
+     * The mutable state used while the entries are collected
+     */
+    private static class Table {
+
+        private Object[] keys;
+        private Object[] values;
+        private int[] hashes;
+        private int[] index;
+        private int size;
+        private int hashCode;
+
+        static Table copyOf(Dictionary<?, ?> props) {
+            if (props == null)
+                throw MESSAGES.illegalArgumentNull("props");
+
+            Table table = new Table();
+            if (props instanceof UnmodifiableDictionary) {
+                UnmodifiableDictionary<?, ?> other = (UnmodifiableDictionary<?, ?>) props;
+                table.keys = other.keys;
+                table.values = other.values;
+                table.hashes = other.hashes;
+                table.index = other.index;
+                table.size = other.size;
+                table.hashCode = other.hashCode;
+            } else {
+                table.init(props.size());
+                Enumeration<?> en = props.keys();
+                while (en.hasMoreElements()) {
+                    Object key = en.nextElement();
+                    table.add(key, props.get(key));
+                }
+                table.complete();
+            }
+            return table;
+        }
+
+        private void init(int capacity) {
+            if (capacity == 0) {
+                keys = values = EMPTY;
+                hashes = EMPTY_INDEX;
+                index = EMPTY_INDEX;
+            } else {
+                keys = new Object[capacity];
+                values = new Object[capacity];
+                hashes = new int[capacity];
+                index = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+            }
+        }
+
+        private void add(Object key, Object value) {
+            if (key == null)
+                throw MESSAGES.illegalArgumentNull("key");
+            if (value == null)
+                throw MESSAGES.illegalArgumentNull("value");
+            int pos = indexOf(key, keys, hashes, index, size);
+            if (pos >= 0) {
+                values[pos] = value;
+                return;
+            }
+            // The source may report fewer entries than it enumerates
+            if (size == keys.length) {
+                Object[] oldKeys = keys;
+                Object[] oldValues = values;
+                int oldSize = size;
+                init(size * 2 + 1);
+                size = 0;
+                for (int i = 0; i < oldSize; i++) {
+                    add(oldKeys[i], oldValues[i]);
+                }
+            }
+            int hash = spread(key.hashCode());
+            int mask = index.length - 1;
+            int slot = hash & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[size] = key;
+            values[size] = value;
+            hashes[size] = hash;
+            index[slot] = ++size;
+        }
+
+        private void complete() {
+            int result = 0;
+            for (int i = 0; i < size; i++) {
+                result += keys[i].hashCode() ^ values[i].hashCode();
+            }
+            hashCode = result;
+        }
+    }
+
+    private static class ArrayEnumeration<T> implements Enumeration<T> {
+
+        private final Object[] array;
+        private final int size;
+        private int next;
+
+        ArrayEnumeration(Object[] array, int size) {
+            this.array = array;
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            return next < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T nextElement() {
+            if (next >= size)
+                throw new NoSuchElementException();
+            return (T) array[next++];
+        }
+    }
+
+    private class MapView extends AbstractMap<K, V> {
+
+        @Override
+        public V get(Object key) {
+            return UnmodifiableDictionary.this.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<Map.Entry<K, V>>() {
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new Iterator<Map.Entry<K, V>>() {
+
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public Map.Entry<K, V> next() {
+                            if (next >= size)
+                                throw new NoSuchElementException();
+                            int pos = next++;
+                            return new AbstractMap.SimpleImmutableEntry<K, V>((K) keys[pos], (V) values[pos]);
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
     }
-}
\ No newline at end of file
+}
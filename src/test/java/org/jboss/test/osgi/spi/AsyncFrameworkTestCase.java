@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.osgi.spi.framework.AsyncFramework;
+import org.jboss.osgi.spi.framework.LifecycleFuture;
+import org.jboss.osgi.spi.framework.PropertiesBootstrapProvider;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * Test the {@link AsyncFramework} lifecycle.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class AsyncFrameworkTestCase {
+
+    private final AtomicInteger state = new AtomicInteger(Bundle.INSTALLED);
+    private final List<BundleListener> listeners = new CopyOnWriteArrayList<BundleListener>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final AtomicInteger listenersOnStart = new AtomicInteger(-1);
+
+    @Test
+    public void testAsyncLifecycle() throws Exception {
+        PropertiesBootstrapProvider provider = new PropertiesBootstrapProvider() {
+            @Override
+            protected Framework createFramework(Map<String, String> properties) {
+                return mockFramework();
+            }
+        };
+        provider.configure(new ByteArrayInputStream(new byte[0]));
+        AsyncFramework framework = (AsyncFramework) provider.getFramework();
+
+        LifecycleFuture<FrameworkEvent> onStop = framework.onStop();
+        Assert.assertFalse(onStop.isDone());
+
+        FrameworkEvent started = framework.startAsync().get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(FrameworkEvent.STARTED, started.getType());
+        Assert.assertEquals(1, listeners.size());
+
+        // The stop listener is registered before the framework starts
+        Assert.assertEquals(1, listenersOnStart.get());
+
+        final AtomicReference<FrameworkEvent> callback = new AtomicReference<FrameworkEvent>();
+        final CountDownLatch callbackLatch = new CountDownLatch(1);
+        onStop.addCallback(new LifecycleFuture.Callback<FrameworkEvent>() {
+            public void completed(FrameworkEvent result) {
+                callback.set(result);
+                callbackLatch.countDown();
+            }
+
+            public void failed(Throwable cause) {
+            }
+        });
+
+        FrameworkEvent event = framework.stopAsync().get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(FrameworkEvent.STOPPED, event.getType());
+        Assert.assertTrue(onStop.isDone());
+
+        // The callback runs on the completing thread, it may finish after get() returned
+        Assert.assertTrue(callbackLatch.await(10, TimeUnit.SECONDS));
+        Assert.assertSame(event, callback.get());
+    }
+
+    private Framework mockFramework() {
+        final BundleContext context = OSGiMock.mock(BundleContext.class).answers("addBundleListener", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                listeners.add((BundleListener) args[0]);
+                return null;
+            }
+        }).get();
+        return OSGiMock.mock(Framework.class).returns("getBundleId", 0L).answers("getState", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                return state.get();
+            }
+        }).answers("getBundleContext", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                return (state.get() & (Bundle.STARTING | Bundle.ACTIVE)) != 0 ? context : null;
+            }
+        }).answers("init", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                state.set(Bundle.STARTING);
+                return null;
+            }
+        }).answers("start", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                listenersOnStart.set(listeners.size());
+                state.set(Bundle.ACTIVE);
+                return null;
+            }
+        }).answers("stop", new OSGiMock.Answer() {
+            public Object answer(final Object proxy, Object[] args) {
+                new Thread() {
+                    public void run() {
+                        state.set(Bundle.STOPPING);
+                        for (BundleListener listener : listeners) {
+                            listener.bundleChanged(new BundleEvent(BundleEvent.STOPPING, (Bundle) proxy));
+                        }
+                        listeners.clear();
+                        state.set(Bundle.RESOLVED);
+                        stopped.countDown();
+                    }
+                }.start();
+                return null;
+            }
+        }).answers("waitForStop", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) throws InterruptedException {
+                stopped.await();
+                return new FrameworkEvent(FrameworkEvent.STOPPED, (Bundle) proxy, null);
+            }
+        }).get();
+    }
+}
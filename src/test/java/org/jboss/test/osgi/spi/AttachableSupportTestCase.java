@@ -0,0 +1,240 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.osgi.spi.AttachableSupport;
+import org.jboss.osgi.spi.AttachmentKey;
+import org.jboss.osgi.spi.ConcurrentAttachable.AttachmentFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link AttachableSupport}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class AttachableSupportTestCase {
+
+    private static final AttachmentKey<String> STRING_KEY = AttachmentKey.create(String.class);
+    private static final AttachmentKey<Integer> INTEGER_KEY = AttachmentKey.create(Integer.class);
+
+    @Test
+    public void testPutGetRemove() {
+        AttachableSupport attachable = new AttachableSupport();
+        Assert.assertNull(attachable.getAttachment(STRING_KEY));
+        Assert.assertNull(attachable.putAttachment(STRING_KEY, "a"));
+        Assert.assertEquals("a", attachable.putAttachment(STRING_KEY, "b"));
+        Assert.assertEquals("b", attachable.getAttachment(STRING_KEY));
+        Assert.assertNull(attachable.getAttachment(INTEGER_KEY));
+        Assert.assertEquals("b", attachable.removeAttachment(STRING_KEY));
+        Assert.assertNull(attachable.getAttachment(STRING_KEY));
+        Assert.assertNull(attachable.removeAttachment(STRING_KEY));
+    }
+
+    @Test
+    public void testConditionalOperations() {
+        AttachableSupport attachable = new AttachableSupport();
+        Assert.assertNull(attachable.replaceAttachment(STRING_KEY, "a"));
+        Assert.assertNull(attachable.getAttachment(STRING_KEY));
+
+        Assert.assertNull(attachable.putAttachmentIfAbsent(STRING_KEY, "a"));
+        Assert.assertEquals("a", attachable.putAttachmentIfAbsent(STRING_KEY, "b"));
+        Assert.assertEquals("a", attachable.replaceAttachment(STRING_KEY, "b"));
+
+        Assert.assertFalse(attachable.replaceAttachment(STRING_KEY, "a", "c"));
+        Assert.assertTrue(attachable.replaceAttachment(STRING_KEY, "b", "c"));
+        Assert.assertEquals("c", attachable.getAttachment(STRING_KEY));
+    }
+
+    @Test
+    public void testManyKeys() throws Exception {
+        List<AttachmentKey<Integer>> keys = new ArrayList<AttachmentKey<Integer>>();
+        for (int i = 0; i < 200; i++) {
+            keys.add(AttachmentKey.create(Integer.class));
+        }
+
+        AttachableSupport attachable = new AttachableSupport();
+        for (int i = 0; i < keys.size(); i++) {
+            Assert.assertNull(attachable.putAttachment(keys.get(i), i));
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            Assert.assertEquals(Integer.valueOf(i), attachable.getAttachment(keys.get(i)));
+        }
+
+        // The conditional operations work for keys beyond the array capacity
+        AttachmentKey<Integer> last = keys.get(keys.size() - 1);
+        Assert.assertEquals(Integer.valueOf(199), attachable.putAttachmentIfAbsent(last, 0));
+        Assert.assertFalse(attachable.replaceAttachment(last, 0, 1));
+        Assert.assertTrue(attachable.replaceAttachment(last, 199, 1));
+        Assert.assertEquals(Integer.valueOf(1), attachable.replaceAttachment(last, 2));
+        Assert.assertEquals(Integer.valueOf(2), attachable.removeAttachment(last));
+        Assert.assertNull(attachable.getAttachment(last));
+        Assert.assertNull(attachable.replaceAttachment(last, 3));
+        Assert.assertNull(attachable.putAttachmentIfAbsent(last, 4));
+        Assert.assertEquals(Integer.valueOf(4), attachable.getAttachment(last));
+
+        // The attachment array does not grow with the number of keys
+        Field field = AttachableSupport.class.getDeclaredField("attachments");
+        field.setAccessible(true);
+        Assert.assertTrue(((Object[]) field.get(attachable)).length <= 64);
+
+        // A fresh attachable only pays for the keys it uses
+        AttachableSupport other = new AttachableSupport();
+        other.putAttachment(last, 5);
+        Assert.assertEquals(0, ((Object[]) field.get(other)).length);
+        Assert.assertEquals(Integer.valueOf(5), other.getAttachment(last));
+        Assert.assertNull(other.getAttachment(keys.get(0)));
+    }
+
+    @Test
+    public void testConcurrentUpdatesOfSparseKey() throws Exception {
+        AttachmentKey<Integer> key = null;
+        for (int i = 0; i < 100; i++) {
+            key = AttachmentKey.create(Integer.class);
+        }
+        assertConcurrentIncrements(new AttachableSupport(), key);
+    }
+
+    @Test
+    public void testComputeIfAbsent() {
+        AttachableSupport attachable = new AttachableSupport();
+        final AtomicInteger calls = new AtomicInteger();
+        AttachmentFactory<Integer> factory = new AttachmentFactory<Integer>() {
+            @Override
+            public Integer createAttachment(AttachmentKey<Integer> key) {
+                return calls.incrementAndGet();
+            }
+        };
+        Assert.assertEquals(Integer.valueOf(1), attachable.computeAttachmentIfAbsent(INTEGER_KEY, factory));
+        Assert.assertEquals(Integer.valueOf(1), attachable.computeAttachmentIfAbsent(INTEGER_KEY, factory));
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testBoundedRetention() {
+        AttachmentKey<String> key = AttachmentKey.createBounded(String.class, 2);
+        AttachableSupport first = new AttachableSupport();
+        AttachableSupport second = new AttachableSupport();
+        AttachableSupport third = new AttachableSupport();
+        first.putAttachment(key, "a");
+        second.putAttachment(key, "b");
+        Assert.assertEquals("a", first.getAttachment(key));
+        third.putAttachment(key, "c");
+
+        // The least recently used attachment is released
+        Assert.assertEquals("a", first.getAttachment(key));
+        Assert.assertNull(second.getAttachment(key));
+        Assert.assertEquals("c", third.getAttachment(key));
+        Assert.assertNull(second.putAttachmentIfAbsent(key, "d"));
+        Assert.assertEquals("d", second.getAttachment(key));
+    }
+
+    @Test
+    public void testExpiringRetention() throws Exception {
+        AttachmentKey<String> key = AttachmentKey.createExpiring(String.class, 50, TimeUnit.MILLISECONDS);
+        AttachableSupport attachable = new AttachableSupport();
+        attachable.putAttachment(key, "a");
+        Assert.assertEquals("a", attachable.getAttachment(key));
+        Thread.sleep(100);
+        Assert.assertNull(attachable.getAttachment(key));
+        Assert.assertNull(attachable.putAttachmentIfAbsent(key, "b"));
+        Assert.assertEquals("b", attachable.getAttachment(key));
+    }
+
+    @Test
+    public void testExpiredValueIsReleased() throws Exception {
+        AttachmentKey<Object> key = AttachmentKey.createExpiring(Object.class, 10, TimeUnit.MILLISECONDS);
+        AttachableSupport attachable = new AttachableSupport();
+        Object value = new Object();
+        WeakReference<Object> ref = new WeakReference<Object>(value);
+        attachable.putAttachment(key, value);
+        value = null;
+        Thread.sleep(50);
+
+        // The read that finds the value expired clears the slot
+        Assert.assertNull(attachable.getAttachment(key));
+        for (int i = 0; i < 10 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(ref.get());
+    }
+
+    @Test
+    public void testBoundedBudgetPerKey() {
+        AttachmentKey<String> keyA = AttachmentKey.createBounded(String.class, 1);
+        AttachmentKey<String> keyB = AttachmentKey.createBounded(String.class, 1);
+        AttachableSupport first = new AttachableSupport();
+        AttachableSupport second = new AttachableSupport();
+        first.putAttachment(keyA, "a");
+        first.putAttachment(keyB, "b");
+        Assert.assertEquals("a", first.getAttachment(keyA));
+        Assert.assertEquals("b", first.getAttachment(keyB));
+
+        // Exceeding the budget of one key does not release attachments of another key
+        second.putAttachment(keyA, "c");
+        Assert.assertEquals("c", second.getAttachment(keyA));
+        Assert.assertEquals("b", first.getAttachment(keyB));
+
+        // A removed attachment does not count against the budget
+        second.removeAttachment(keyA);
+        first.putAttachment(keyA, "d");
+        Assert.assertEquals("d", first.getAttachment(keyA));
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        assertConcurrentIncrements(new AttachableSupport(), INTEGER_KEY);
+    }
+
+    private void assertConcurrentIncrements(final AttachableSupport attachable, final AttachmentKey<Integer> key) throws Exception {
+        attachable.putAttachment(key, 0);
+        final int threads = 4;
+        final int increments = 1000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < increments; j++) {
+                        Integer value = attachable.getAttachment(key);
+                        while (attachable.replaceAttachment(key, value, value + 1) == false) {
+                            value = attachable.getAttachment(key);
+                        }
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        Assert.assertEquals(Integer.valueOf(threads * increments), attachable.getAttachment(key));
+    }
+}
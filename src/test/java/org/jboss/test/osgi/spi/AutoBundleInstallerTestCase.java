@@ -0,0 +1,197 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.osgi.spi.SPIEvents;
+import org.jboss.osgi.spi.SPIEvents.Type;
+import org.jboss.osgi.spi.framework.PropertiesBootstrapProvider;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * Test the installation and start of the auto bundles.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class AutoBundleInstallerTestCase {
+
+    private final List<String> installed = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+    private final AtomicInteger concurrentInstalls = new AtomicInteger();
+    private final AtomicInteger maxConcurrentInstalls = new AtomicInteger();
+    private final CyclicBarrier barrier = new CyclicBarrier(2);
+
+    @Test
+    public void testParallelInstall() throws Exception {
+        start("bootstrapThreads=4\nautoInstall=file:/a.jar file:/b.jar file:/c.jar file:/d.jar\n");
+        Assert.assertEquals(4, installed.size());
+        Assert.assertTrue("Concurrent installs expected", maxConcurrentInstalls.get() > 1);
+        Assert.assertEquals(0, started.size());
+    }
+
+    @Test
+    public void testDeclaredStartOrder() throws Exception {
+        start("bootstrapThreads=4\nautoStart=file:/a.jar file:/b.jar file:/c.jar file:/d.jar\n");
+        Assert.assertEquals(4, installed.size());
+        Assert.assertEquals("[file:/a.jar, file:/b.jar, file:/c.jar, file:/d.jar]", started.toString());
+    }
+
+    @Test
+    public void testStartLevelWaves() throws Exception {
+        start("bootstrapThreads=4\nautoStart=file:/a.jar\nautoStart.2=file:/d.jar\nautoStart.1=file:/barrier1.jar file:/barrier2.jar\n");
+        Assert.assertEquals(4, started.size());
+        Assert.assertEquals("file:/a.jar", started.get(0));
+        Assert.assertEquals("file:/d.jar", started.get(3));
+    }
+
+    @Test
+    public void testFirstFailureInDeclaredOrder() throws Exception {
+        try {
+            start("bootstrapThreads=4\nautoStart.1=file:/slowfail.jar file:/fail.jar\nautoStart.2=file:/d.jar\n");
+            Assert.fail("BundleException expected");
+        } catch (BundleException ex) {
+            Assert.assertEquals("file:/slowfail.jar", ex.getMessage());
+        }
+        Assert.assertFalse(started.contains("file:/d.jar"));
+    }
+
+    @Test
+    public void testStartEvents() throws Exception {
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        SPIEvents.setRecorder(new SPIEvents.Recorder() {
+            public void record(Type type, long startNanos, long durationNanos, String location, String symbolicName, boolean success) {
+                // Ignore the start of the framework
+                if (type == Type.BUNDLE_START && location != null)
+                    events.add(location + ":" + success);
+            }
+        });
+        try {
+            try {
+                start("autoStart=file:/a.jar file:/fail.jar\n");
+                Assert.fail("BundleException expected");
+            } catch (BundleException ex) {
+                Assert.assertEquals("[file:/a.jar:true, file:/fail.jar:false]", events.toString());
+            }
+
+            // Instrumented bundles do not emit a second event
+            events.clear();
+            start("instrumentBundles=true\nautoStart=file:/b.jar\n");
+            Assert.assertEquals("[file:/b.jar:true]", events.toString());
+        } finally {
+            SPIEvents.setRecorder(null);
+        }
+    }
+
+    @Test
+    public void testBootstrapThreads() throws Exception {
+        for (String value : new String[] { "0", "-1", "many" }) {
+            try {
+                start("bootstrapThreads=" + value + "\n");
+                Assert.fail("IllegalStateException expected: " + value);
+            } catch (IllegalStateException ex) {
+                // expected
+            }
+        }
+        start("bootstrapThreads= 2 \nautoStart=file:/a.jar\n");
+        Assert.assertEquals(1, started.size());
+    }
+
+    @Test
+    public void testInvalidStartLevel() throws Exception {
+        try {
+            start("autoStart.first=file:/a.jar\n");
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    private void start(String config) throws Exception {
+        config = config.replaceAll("(?m)^(\\w)", "org.jboss.osgi.framework.$1");
+        final BundleContext context = mockContext();
+        PropertiesBootstrapProvider provider = new PropertiesBootstrapProvider() {
+            @Override
+            protected Framework createFramework(Map<String, String> properties) {
+                return OSGiMock.mock(Framework.class).returns("getBundleContext", context).returns("getState", Bundle.ACTIVE).get();
+            }
+        };
+        provider.configure(new ByteArrayInputStream(config.getBytes("UTF-8")));
+        provider.getFramework().start();
+    }
+
+    private BundleContext mockContext() {
+        return OSGiMock.mock(BundleContext.class).answers("installBundle", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) throws InterruptedException {
+                int concurrent = concurrentInstalls.incrementAndGet();
+                synchronized (maxConcurrentInstalls) {
+                    maxConcurrentInstalls.set(Math.max(concurrent, maxConcurrentInstalls.get()));
+                }
+                Thread.sleep(50);
+                concurrentInstalls.decrementAndGet();
+                String location = (String) args[0];
+                installed.add(location);
+                return mockBundle(installed.size(), location);
+            }
+        }).get();
+    }
+
+    private Bundle mockBundle(long bundleId, final String location) {
+        return OSGiMock.bundle(bundleId).returns("getLocation", location).answers("start", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) throws Exception {
+                if (location.contains("barrier")) {
+                    // Both bundles of the level must be starting at the same time
+                    try {
+                        barrier.await(10, TimeUnit.SECONDS);
+                    } catch (TimeoutException ex) {
+                        throw new BundleException("Not started concurrently: " + location);
+                    } catch (BrokenBarrierException ex) {
+                        throw new BundleException("Not started concurrently: " + location);
+                    }
+                }
+                if (location.contains("slowfail")) {
+                    Thread.sleep(100);
+                    throw new BundleException(location);
+                }
+                if (location.contains("fail"))
+                    throw new BundleException(location);
+                started.add(location);
+                return null;
+            }
+        }).get();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.osgi.spi.framework.PropertiesBootstrapProvider;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * Test the resolved bootstrap configuration snapshot.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class BootstrapConfigSnapshotTestCase {
+
+    private final AtomicReference<Map<String, String>> frameworkProps = new AtomicReference<Map<String, String>>();
+
+    @Test
+    public void testSnapshot() throws Exception {
+        File configFile = File.createTempFile("jboss-osgi-framework", ".properties");
+        File snapshotFile = new File(configFile.getPath() + ".snapshot");
+        System.setProperty(PropertiesBootstrapProvider.PROP_OSGI_FRAMEWORK_CONFIG_SNAPSHOT, snapshotFile.getPath());
+        System.setProperty("snapshot.test", "a");
+        try {
+            writeConfig(configFile, "foo=${snapshot.test}");
+            long lastModified = configFile.lastModified();
+
+            configure(configFile);
+            Assert.assertEquals("a", frameworkProps.get().get("foo"));
+            Assert.assertTrue(snapshotFile.isFile());
+
+            // Same timestamp and system properties, the snapshot is used
+            writeConfig(configFile, "foo=changed");
+            configFile.setLastModified(lastModified);
+            configure(configFile);
+            Assert.assertEquals("a", frameworkProps.get().get("foo"));
+
+            // A referenced system property changed
+            System.setProperty("snapshot.test", "b");
+            configure(configFile);
+            Assert.assertEquals("changed", frameworkProps.get().get("foo"));
+
+            // The source changed
+            writeConfig(configFile, "foo=${snapshot.test}");
+            configFile.setLastModified(lastModified + 2000);
+            configure(configFile);
+            Assert.assertEquals("b", frameworkProps.get().get("foo"));
+        } finally {
+            System.clearProperty(PropertiesBootstrapProvider.PROP_OSGI_FRAMEWORK_CONFIG_SNAPSHOT);
+            System.clearProperty("snapshot.test");
+            configFile.delete();
+            snapshotFile.delete();
+        }
+    }
+
+    private void configure(File configFile) throws Exception {
+        PropertiesBootstrapProvider provider = new PropertiesBootstrapProvider() {
+            @Override
+            protected Framework createFramework(Map<String, String> properties) {
+                frameworkProps.set(properties);
+                return OSGiMock.mock(Framework.class).get();
+            }
+        };
+        provider.configure(configFile.toURI().toURL());
+    }
+
+    private static void writeConfig(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.osgi.spi.framework.BootstrapProfiler;
+import org.jboss.osgi.spi.framework.BootstrapProfiler.Span;
+import org.jboss.osgi.spi.framework.PropertiesBootstrapProvider;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * Test the {@link BootstrapProfiler}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class BootstrapProfilerTestCase {
+
+    @Test
+    public void testNestedSpans() throws Exception {
+        BootstrapProfiler profiler = new BootstrapProfiler();
+        Span outer = profiler.begin("bootstrap", "start");
+        Span inner = profiler.begin("bundle", "start \"org.acme\"");
+        Thread.sleep(2);
+        inner.end();
+        outer.end();
+        outer.end();
+
+        List<Span> spans = profiler.getSpans();
+        Assert.assertEquals(2, spans.size());
+        Assert.assertSame(inner, spans.get(0));
+        Assert.assertTrue(outer.getStartNanos() <= inner.getStartNanos());
+        Assert.assertTrue(outer.getDurationNanos() >= inner.getDurationNanos());
+
+        String trace = profiler.toChromeTrace();
+        Assert.assertTrue(trace, trace.startsWith("{\"traceEvents\":["));
+        Assert.assertTrue(trace, trace.contains("\"name\":\"start \\\"org.acme\\\"\",\"cat\":\"bundle\",\"ph\":\"X\""));
+        Assert.assertTrue(trace, trace.contains("\"name\":\"thread_name\""));
+    }
+
+    @Test
+    public void testDisabledAndBounded() throws Exception {
+        BootstrapProfiler profiler = new BootstrapProfiler();
+        profiler.begin("bootstrap", "start").end();
+        profiler.setEnabled(false);
+        Assert.assertTrue(profiler.getSpans().isEmpty());
+        profiler.begin("bootstrap", "start").end();
+        Assert.assertTrue(profiler.getSpans().isEmpty());
+
+        profiler.setEnabled(true);
+        for (int i = 0; i <= BootstrapProfiler.MAX_SPANS; i++) {
+            profiler.begin("bundle", "start " + i).end();
+        }
+        Assert.assertEquals(BootstrapProfiler.MAX_SPANS, profiler.getSpans().size());
+    }
+
+    @Test
+    public void testProviderProfile() throws Exception {
+        // Nothing is recorded without a profile output
+        PropertiesBootstrapProvider provider = provider();
+        provider.configure(new ByteArrayInputStream(new byte[0]));
+        Framework framework = provider.getFramework();
+        framework.start();
+        Assert.assertTrue(provider.getProfiler().getSpans().isEmpty());
+
+        File output = File.createTempFile("profile", ".json");
+        try {
+            String config = PropertiesBootstrapProvider.PROP_OSGI_FRAMEWORK_PROFILE_OUTPUT + "=" + output.getPath().replace('\\', '/');
+            provider.configure(new ByteArrayInputStream(config.getBytes("UTF-8")));
+            framework = provider.getFramework();
+            framework.start();
+            List<String> names = getSpanNames(provider.getProfiler());
+            Assert.assertTrue(names.toString(), names.contains("resolveConfig"));
+            Assert.assertTrue(names.toString(), names.contains("start"));
+            Assert.assertTrue(output.length() > 0);
+
+            // A restart only records its own timeline
+            framework.start();
+            names = getSpanNames(provider.getProfiler());
+            Assert.assertFalse(names.toString(), names.contains("resolveConfig"));
+            Assert.assertEquals(names.toString(), 1, Collections.frequency(names, "start"));
+        } finally {
+            output.delete();
+        }
+    }
+
+    private static List<String> getSpanNames(BootstrapProfiler profiler) {
+        List<String> names = new ArrayList<String>();
+        for (Span span : profiler.getSpans()) {
+            names.add(span.getName());
+        }
+        return names;
+    }
+
+    private static PropertiesBootstrapProvider provider() {
+        final BundleContext context = OSGiMock.mock(BundleContext.class).get();
+        return new PropertiesBootstrapProvider() {
+            @Override
+            protected Framework createFramework(Map<String, String> properties) {
+                return OSGiMock.mock(Framework.class).returns("getBundleContext", context).returns("getState", Bundle.ACTIVE).get();
+            }
+        };
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Creates bundle archives and scratch directories for the tests.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public final class BundleArchives {
+
+    private BundleArchives() {
+    }
+
+    /**
+     * Create a new empty temp directory
+     */
+    public static File createTempDir(String prefix) throws IOException {
+        File dir = File.createTempFile(prefix, "");
+        if (dir.delete() == false || dir.mkdirs() == false)
+            throw new IOException("Cannot create: " + dir);
+        return dir;
+    }
+
+    /**
+     * Delete the given file or directory recursively
+     */
+    public static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Write an R4 bundle archive with the given symbolic name and version
+     */
+    public static File createBundle(File file, String symbolicName, String version) throws IOException {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.putValue("Manifest-Version", "1.0");
+        attributes.putValue("Bundle-ManifestVersion", "2");
+        attributes.putValue("Bundle-SymbolicName", symbolicName);
+        attributes.putValue("Bundle-Version", version);
+        return createArchive(file, manifest);
+    }
+
+    /**
+     * Write an archive with the given manifest, or without a manifest if it is null
+     */
+    public static File createArchive(File file, Manifest manifest) throws IOException {
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            JarOutputStream jar = manifest != null ? new JarOutputStream(output, manifest) : new JarOutputStream(output);
+            jar.close();
+        } finally {
+            output.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jboss.osgi.spi.BundleInfo;
+import org.jboss.osgi.spi.BundleInfoCache;
+import org.jboss.osgi.spi.SPIEvents;
+import org.jboss.osgi.spi.SPIEvents.Type;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link BundleInfoCache}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class BundleInfoCacheTestCase {
+
+    private final List<Type> events = new CopyOnWriteArrayList<Type>();
+
+    @Test
+    public void testCacheEntries() throws Exception {
+        File dir = BundleArchives.createTempDir("bundlecache");
+        SPIEvents.setRecorder(new SPIEvents.Recorder() {
+            public void record(Type type, long startNanos, long durationNanos, String location, String symbolicName, boolean success) {
+                events.add(type);
+            }
+        });
+        try {
+            File cacheDir = new File(dir, "cache");
+            File archive = BundleArchives.createBundle(new File(dir, "acme.jar"), "org.acme.cache", "1.0.0");
+            URL url = archive.toURI().toURL();
+            BundleInfoCache cache = new BundleInfoCache(cacheDir);
+
+            // Miss
+            assertBundleInfo(cache.createBundleInfo(url), "1.0.0", true);
+            File[] entries = cacheDir.listFiles();
+            Assert.assertEquals(1, entries.length);
+
+            // Hit
+            assertBundleInfo(cache.createBundleInfo(url), "1.0.0", false);
+
+            // The archive changed
+            BundleArchives.createBundle(archive, "org.acme.cache", "2.0.0");
+            archive.setLastModified(archive.lastModified() + 2000);
+            assertBundleInfo(cache.createBundleInfo(url), "2.0.0", true);
+            assertBundleInfo(cache.createBundleInfo(url), "2.0.0", false);
+
+            // A corrupt entry is ignored and rewritten
+            writeCorruptEntry(entries[0]);
+            assertBundleInfo(cache.createBundleInfo(url), "2.0.0", true);
+            assertBundleInfo(cache.createBundleInfo(url), "2.0.0", false);
+
+            // A serialized object is never read
+            ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(entries[0]));
+            out.writeObject(new java.util.Date());
+            out.close();
+            assertBundleInfo(cache.createBundleInfo(url), "2.0.0", true);
+
+            cache.invalidate(url.toExternalForm());
+            Assert.assertFalse(entries[0].exists());
+        } finally {
+            SPIEvents.setRecorder(null);
+            BundleArchives.delete(dir);
+        }
+    }
+
+    @Test
+    public void testDefaultCache() throws Exception {
+        File dir = BundleArchives.createTempDir("bundlecache");
+        SPIEvents.setRecorder(new SPIEvents.Recorder() {
+            public void record(Type type, long startNanos, long durationNanos, String location, String symbolicName, boolean success) {
+                events.add(type);
+            }
+        });
+        try {
+            File cacheDir = new File(dir, "cache");
+            File archive = BundleArchives.createBundle(new File(dir, "acme.jar"), "org.acme.cache", "1.0.0");
+            URL url = archive.toURI().toURL();
+
+            // The cache is off by default
+            Assert.assertNull(System.getProperty(BundleInfoCache.PROP_BUNDLE_INFO_CACHE));
+            assertBundleInfo(BundleInfo.createBundleInfo(url), "1.0.0", true);
+            Assert.assertFalse(cacheDir.exists());
+
+            System.setProperty(BundleInfoCache.PROP_BUNDLE_INFO_CACHE, cacheDir.getPath());
+            try {
+                assertBundleInfo(BundleInfo.createBundleInfo(url), "1.0.0", true);
+                Assert.assertEquals(1, cacheDir.listFiles().length);
+                assertBundleInfo(BundleInfo.createBundleInfo(url.toExternalForm()), "1.0.0", false);
+            } finally {
+                System.clearProperty(BundleInfoCache.PROP_BUNDLE_INFO_CACHE);
+            }
+        } finally {
+            SPIEvents.setRecorder(null);
+            BundleArchives.delete(dir);
+        }
+    }
+
+    private void assertBundleInfo(BundleInfo info, String version, boolean loaded) {
+        Assert.assertEquals("org.acme.cache", info.getSymbolicName());
+        Assert.assertEquals(version, info.getVersion().toString());
+        Assert.assertEquals(version, info.getOSGiMetadata().getBundleVersion().toString());
+        Assert.assertEquals(loaded, events.contains(Type.MANIFEST_LOAD));
+        events.clear();
+    }
+
+    private static void writeCorruptEntry(File entry) throws IOException {
+        FileOutputStream out = new FileOutputStream(entry);
+        try {
+            out.write(new byte[] { 0x4A, 0x42, 0x49, 0x43, 0, 0, 0, 2, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF });
+        } finally {
+            out.close();
+        }
+    }
+}
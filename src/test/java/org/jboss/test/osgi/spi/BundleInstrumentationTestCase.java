@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.util.List;
+
+import org.jboss.osgi.spi.framework.BundleInstrumentation;
+import org.jboss.osgi.spi.framework.BundleMetrics;
+import org.jboss.osgi.spi.framework.BundleMetrics.Operation;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+
+/**
+ * Test the {@link BundleInstrumentation}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class BundleInstrumentationTestCase {
+
+    @Test
+    public void testLifecycleTimings() throws Exception {
+        BundleInstrumentation instrumentation = new BundleInstrumentation();
+        Bundle fast = instrumentation.instrument(mockBundle(1, 0));
+        Bundle slow = instrumentation.instrument(mockBundle(2, 20));
+        Assert.assertSame(fast, instrumentation.instrument(fast));
+
+        fast.start();
+        slow.start();
+        fast.loadClass("java.lang.String");
+        try {
+            fast.loadClass("org.acme.Missing");
+            Assert.fail("ClassNotFoundException expected");
+        } catch (ClassNotFoundException ex) {
+            // expected
+        }
+
+        BundleMetrics metrics = instrumentation.getMetrics(1);
+        Assert.assertEquals(1, metrics.getInvocationCount(Operation.START));
+        Assert.assertEquals(2, metrics.getInvocationCount(Operation.LOAD_CLASS));
+        Assert.assertEquals(1, metrics.getFailureCount(Operation.LOAD_CLASS));
+        Assert.assertEquals(2, metrics.getLatency(Operation.LOAD_CLASS).getCount());
+
+        List<BundleMetrics> slowest = instrumentation.getSlowestActivators(1);
+        Assert.assertEquals(1, slowest.size());
+        Assert.assertEquals(2, slowest.get(0).getBundleId());
+    }
+
+    @Test
+    public void testInstrumentedBundleLookup() throws Exception {
+        BundleInstrumentation instrumentation = new BundleInstrumentation();
+        Bundle bundle = mockBundle(3, 0);
+        Assert.assertNull(instrumentation.getBundle(3));
+
+        Bundle instrumented = instrumentation.instrument(bundle);
+        Assert.assertSame(instrumented, instrumentation.instrument(bundle));
+        Assert.assertSame(instrumented, instrumentation.getBundle(3));
+
+        // Calls through the looked up bundle are recorded
+        instrumentation.getBundle(3).loadClass("java.lang.String");
+        Assert.assertEquals(1, instrumentation.getMetrics(3).getInvocationCount(Operation.LOAD_CLASS));
+    }
+
+    @Test
+    public void testUninstalledBundleIsPruned() throws Exception {
+        BundleInstrumentation instrumentation = new BundleInstrumentation();
+        Bundle bundle = mockBundle(4, 0);
+        instrumentation.instrument(bundle).start();
+
+        instrumentation.bundleChanged(new BundleEvent(BundleEvent.STOPPED, bundle));
+        Assert.assertNotNull(instrumentation.getMetrics(4));
+
+        instrumentation.bundleChanged(new BundleEvent(BundleEvent.UNINSTALLED, bundle));
+        Assert.assertNull(instrumentation.getMetrics(4));
+        Assert.assertNull(instrumentation.getBundle(4));
+        Assert.assertTrue(instrumentation.getMetrics().isEmpty());
+    }
+
+    private static Bundle mockBundle(long bundleId, final long startMillis) {
+        return OSGiMock.bundle(bundleId).answers("start", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) throws InterruptedException {
+                Thread.sleep(startMillis);
+                return null;
+            }
+        }).answers("loadClass", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) throws ClassNotFoundException {
+                return Class.forName((String) args[0]);
+            }
+        }).get();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jboss.osgi.spi.BundleInfo;
+import org.jboss.osgi.spi.BundleScanner;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link BundleScanner}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class BundleScannerTestCase {
+
+    @Test
+    public void testScan() throws Exception {
+        File dir = BundleArchives.createTempDir("bundlescanner");
+        try {
+            File nested = new File(dir, "a/b");
+            Assert.assertTrue(nested.mkdirs());
+            BundleArchives.createBundle(new File(dir, "one.jar"), "org.acme.one", "1.0.0");
+            BundleArchives.createBundle(new File(nested, "two.jar"), "org.acme.two", "1.0.0");
+            BundleArchives.createBundle(new File(dir, "three.zip"), "org.acme.three", "1.0.0");
+            BundleArchives.createArchive(new File(dir, "plain.jar"), null);
+            BundleArchives.createBundle(new File(dir, "nosymbolicname.jar"), "", "1.0.0");
+            writeFile(new File(dir, "corrupt.jar"), "not a zip");
+            File exploded = new File(dir, "exploded");
+            writeFile(new File(exploded, "META-INF/MANIFEST.MF"), "Manifest-Version: 1.0\nBundle-ManifestVersion: 2\nBundle-SymbolicName: org.acme.exploded\n");
+
+            List<BundleInfo> bundles = new BundleScanner(2, 1).scan(dir);
+            Assert.assertEquals("[org.acme.exploded, org.acme.one, org.acme.two]", getSymbolicNames(bundles).toString());
+        } finally {
+            BundleArchives.delete(dir);
+        }
+    }
+
+    @Test
+    public void testSymbolicLinkCycle() throws Exception {
+        File dir = BundleArchives.createTempDir("bundlescanner");
+        try {
+            File nested = new File(dir, "nested");
+            Assert.assertTrue(nested.mkdirs());
+            BundleArchives.createBundle(new File(nested, "one.jar"), "org.acme.one", "1.0.0");
+            if (createSymbolicLink(new File(nested, "loop"), dir) == false)
+                return;
+
+            List<BundleInfo> bundles = new BundleScanner(2).scan(dir);
+            Assert.assertEquals("[org.acme.one]", getSymbolicNames(bundles).toString());
+        } finally {
+            new File(dir, "nested/loop").delete();
+            BundleArchives.delete(dir);
+        }
+    }
+
+    @Test
+    public void testHandlerFailure() throws Exception {
+        File dir = BundleArchives.createTempDir("bundlescanner");
+        try {
+            BundleArchives.createBundle(new File(dir, "one.jar"), "org.acme.one", "1.0.0");
+            new BundleScanner(1).scan(dir, new BundleScanner.BundleHandler() {
+                public void bundleFound(BundleInfo info) {
+                    throw new IllegalStateException(info.getSymbolicName());
+                }
+            });
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException ex) {
+            Assert.assertEquals("org.acme.one", ex.getMessage());
+        } finally {
+            BundleArchives.delete(dir);
+        }
+    }
+
+    @Test
+    public void testHandlerError() throws Exception {
+        File dir = BundleArchives.createTempDir("bundlescanner");
+        try {
+            BundleArchives.createBundle(new File(dir, "one.jar"), "org.acme.one", "1.0.0");
+            new BundleScanner(1).scan(dir, new BundleScanner.BundleHandler() {
+                public void bundleFound(BundleInfo info) {
+                    throw new LinkageError(info.getSymbolicName());
+                }
+            });
+            Assert.fail("LinkageError expected");
+        } catch (LinkageError err) {
+            Assert.assertEquals("org.acme.one", err.getMessage());
+        } finally {
+            BundleArchives.delete(dir);
+        }
+    }
+
+    private static Set<String> getSymbolicNames(List<BundleInfo> bundles) {
+        Set<String> names = new TreeSet<String>();
+        for (BundleInfo info : bundles) {
+            names.add(info.getSymbolicName());
+        }
+        Assert.assertEquals(bundles.size(), names.size());
+        return names;
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content.getBytes("UTF-8"));
+        } finally {
+            output.close();
+        }
+    }
+
+    // Use java.nio.file reflectively, the link is skipped where it is not supported
+    private static boolean createSymbolicLink(File link, File target) {
+        try {
+            Class<?> paths = Class.forName("java.nio.file.Paths");
+            Class<?> path = Class.forName("java.nio.file.Path");
+            Class<?> files = Class.forName("java.nio.file.Files");
+            Class<?> attributes = Class.forName("java.nio.file.attribute.FileAttribute");
+            Method get = paths.getMethod("get", String.class, String[].class);
+            Object linkPath = get.invoke(null, link.getPath(), new String[0]);
+            Object targetPath = get.invoke(null, target.getPath(), new String[0]);
+            Object noAttributes = java.lang.reflect.Array.newInstance(attributes, 0);
+            files.getMethod("createSymbolicLink", path, path, noAttributes.getClass()).invoke(null, linkPath, targetPath, noAttributes);
+            return true;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.osgi.spi.framework.BundleInstrumentation;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+
+/**
+ * Test the class load cache of the bundle wrapper.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class ClassLoadCacheTestCase {
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+    private final AtomicReference<BundleListener> listener = new AtomicReference<BundleListener>();
+
+    private static final String PROP_CLASS_LOAD_CACHE = "org.jboss.osgi.spi.framework.classLoadCache";
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        Assert.assertNull(System.getProperty(PROP_CLASS_LOAD_CACHE));
+        Bundle wrapper = new BundleInstrumentation().instrument(mockBundle());
+        wrapper.loadClass("java.lang.String");
+        wrapper.loadClass("java.lang.String");
+        Assert.assertEquals(2, loadCount.get());
+        Assert.assertNull(listener.get());
+    }
+
+    @Test
+    public void testPositiveAndNegativeCaching() throws Exception {
+        Bundle bundle = mockBundle();
+        Bundle wrapper;
+        System.setProperty(PROP_CLASS_LOAD_CACHE, "true");
+        try {
+            wrapper = new BundleInstrumentation().instrument(bundle);
+        } finally {
+            System.clearProperty(PROP_CLASS_LOAD_CACHE);
+        }
+
+        Assert.assertSame(String.class, wrapper.loadClass("java.lang.String"));
+        Assert.assertSame(String.class, wrapper.loadClass("java.lang.String"));
+        Assert.assertEquals(1, loadCount.get());
+        Assert.assertNotNull(listener.get());
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                wrapper.loadClass("org.acme.Missing");
+                Assert.fail("ClassNotFoundException expected");
+            } catch (ClassNotFoundException ex) {
+                Assert.assertEquals(i == 0, ex.getStackTrace().length > 0);
+            }
+        }
+        Assert.assertEquals(2, loadCount.get());
+
+        listener.get().bundleChanged(new BundleEvent(BundleEvent.UPDATED, bundle));
+        wrapper.loadClass("java.lang.String");
+        Assert.assertEquals(3, loadCount.get());
+    }
+
+    private Bundle mockBundle() {
+        BundleContext context = OSGiMock.mock(BundleContext.class).answers("addBundleListener", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                listener.set((BundleListener) args[0]);
+                return null;
+            }
+        }).get();
+        return OSGiMock.bundle(1).returns("getState", Bundle.ACTIVE).returns("getBundleContext", context).answers("loadClass", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) throws ClassNotFoundException {
+                loadCount.incrementAndGet();
+                return Class.forName((String) args[0]);
+            }
+        }).get();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import org.jboss.osgi.spi.ConstantsHelper;
+import org.jboss.osgi.spi.EventStatistics;
+import org.jboss.osgi.spi.LatencyHistogram;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Test the {@link EventStatistics}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class EventStatisticsTestCase {
+
+    @Test
+    public void testDecoding() throws Exception {
+        Assert.assertEquals("ACTIVE", ConstantsHelper.bundleState(Bundle.ACTIVE));
+        Assert.assertEquals("LAZY_ACTIVATION", ConstantsHelper.bundleEvent(BundleEvent.LAZY_ACTIVATION));
+        Assert.assertEquals("MODIFIED_ENDMATCH", ConstantsHelper.serviceEvent(ServiceEvent.MODIFIED_ENDMATCH));
+        Assert.assertEquals("WAIT_TIMEDOUT", ConstantsHelper.frameworkEvent(FrameworkEvent.WAIT_TIMEDOUT));
+        Assert.assertEquals("[3]", ConstantsHelper.bundleEvent(3));
+        Assert.assertEquals("[0]", ConstantsHelper.serviceEvent(0));
+    }
+
+    @Test
+    public void testCounters() throws Exception {
+        Bundle bundle = OSGiMock.bundle(1).get();
+        ServiceReference sref = OSGiMock.mock(ServiceReference.class).get();
+        EventStatistics stats = new EventStatistics(4);
+        stats.bundleChanged(new BundleEvent(BundleEvent.STARTING, bundle));
+        stats.bundleChanged(new BundleEvent(BundleEvent.STARTED, bundle));
+        stats.bundleChanged(new BundleEvent(BundleEvent.STOPPING, bundle));
+        stats.bundleChanged(new BundleEvent(BundleEvent.STOPPED, bundle));
+        for (int i = 0; i < 10; i++) {
+            stats.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, sref));
+        }
+        stats.frameworkEvent(new FrameworkEvent(FrameworkEvent.STARTED, bundle, null));
+
+        EventStatistics.Snapshot snapshot = stats.snapshot();
+        Assert.assertEquals(1, snapshot.getBundleEventCount(BundleEvent.STARTED));
+        Assert.assertEquals(0, snapshot.getBundleEventCount(BundleEvent.INSTALLED));
+        Assert.assertEquals(10, snapshot.getServiceEventCount(ServiceEvent.REGISTERED));
+        Assert.assertEquals(1, snapshot.getFrameworkEventCount(FrameworkEvent.STARTED));
+        Assert.assertEquals(1, snapshot.getStartLatency().getCount());
+        Assert.assertEquals(1, snapshot.getStopLatency().getCount());
+
+        stats.reset();
+        Assert.assertEquals(0, stats.snapshot().getServiceEventCount(ServiceEvent.REGISTERED));
+    }
+
+    @Test
+    public void testOverlappingTransitions() throws Exception {
+        EventStatistics stats = new EventStatistics(1);
+        Bundle[] bundles = new Bundle[100];
+        for (int i = 0; i < bundles.length; i++) {
+            bundles[i] = OSGiMock.bundle(i * 64).get();
+            stats.bundleChanged(new BundleEvent(BundleEvent.STARTING, bundles[i]));
+        }
+        for (int i = bundles.length - 1; i >= 0; i--) {
+            stats.bundleChanged(new BundleEvent(BundleEvent.STARTED, bundles[i]));
+        }
+        stats.bundleChanged(new BundleEvent(BundleEvent.STARTED, bundles[0]));
+        Assert.assertEquals(100, stats.snapshot().getStartLatency().getCount());
+    }
+
+    @Test
+    public void testHistogram() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(100, snapshot.getCount());
+        Assert.assertEquals(100000L, snapshot.getMaxNanos());
+        Assert.assertTrue(snapshot.getPercentileNanos(50) >= 50000L);
+        Assert.assertTrue(snapshot.getPercentileNanos(50) < 100000L);
+        Assert.assertEquals(100000L, snapshot.getPercentileNanos(100));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.osgi.spi.framework.BundleInstrumentation;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+/**
+ * Test the localized header cache of the bundle wrapper.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class HeaderCacheTestCase {
+
+    private static final String PROP_HEADER_CACHE = "org.jboss.osgi.spi.framework.headerCache";
+
+    private final AtomicInteger headerCount = new AtomicInteger();
+    private final AtomicLong lastModified = new AtomicLong(1000);
+    private final AtomicInteger state = new AtomicInteger(Bundle.RESOLVED);
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        Assert.assertNull(System.getProperty(PROP_HEADER_CACHE));
+        Bundle wrapper = new BundleInstrumentation().instrument(mockBundle());
+        Dictionary<String, String> headers = wrapper.getHeaders("de");
+        Assert.assertTrue(headers instanceof Hashtable);
+        Assert.assertNotSame(headers, wrapper.getHeaders("de"));
+        Assert.assertEquals(2, headerCount.get());
+    }
+
+    @Test
+    public void testLocalizedHeaders() throws Exception {
+        Bundle wrapper = cachedBundle();
+
+        Dictionary<String, String> headers = wrapper.getHeaders("de");
+        try {
+            headers.put("Bundle-Name", "other");
+            Assert.fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        Assert.assertEquals("Name de", headers.get("Bundle-Name"));
+        Assert.assertSame(headers, wrapper.getHeaders("de"));
+        Assert.assertEquals("Name fr", wrapper.getHeaders("fr").get("Bundle-Name"));
+        Assert.assertEquals(2, headerCount.get());
+
+        // An update changes the last modified time
+        lastModified.incrementAndGet();
+        Assert.assertNotSame(headers, wrapper.getHeaders("de"));
+        Assert.assertEquals(3, headerCount.get());
+    }
+
+    @Test
+    public void testCaseInsensitiveNames() throws Exception {
+        Bundle wrapper = cachedBundle();
+        Dictionary<String, String> headers = wrapper.getHeaders("de");
+        Assert.assertEquals("Name de", headers.get("bundle-name"));
+        Assert.assertEquals("Name de", headers.get("BUNDLE-NAME"));
+        Assert.assertEquals("Bundle-Name", headers.keys().nextElement());
+        Assert.assertEquals("Name default", wrapper.getHeaders().get("bundle-Name"));
+        Assert.assertNull(headers.get("Bundle-Version"));
+    }
+
+    @Test
+    public void testDefaultLocale() throws Exception {
+        Bundle wrapper = cachedBundle();
+        Locale locale = Locale.getDefault();
+        try {
+            Dictionary<String, String> headers = wrapper.getHeaders();
+            Assert.assertSame(headers, wrapper.getHeaders());
+            Assert.assertEquals(1, headerCount.get());
+
+            // A change of the default locale is seen by the next call
+            Locale.setDefault(locale.equals(Locale.GERMAN) ? Locale.FRENCH : Locale.GERMAN);
+            Assert.assertNotSame(headers, wrapper.getHeaders());
+            Assert.assertEquals(2, headerCount.get());
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testInvalidationOnResolve() throws Exception {
+        Bundle wrapper = cachedBundle();
+        state.set(Bundle.INSTALLED);
+        Dictionary<String, String> headers = wrapper.getHeaders("de");
+        Assert.assertSame(headers, wrapper.getHeaders("de"));
+        Assert.assertEquals(1, headerCount.get());
+
+        // Fragments attached on resolve may contribute to the localization
+        state.set(Bundle.RESOLVED);
+        Dictionary<String, String> resolved = wrapper.getHeaders("de");
+        Assert.assertNotSame(headers, resolved);
+        Assert.assertEquals(2, headerCount.get());
+        state.set(Bundle.ACTIVE);
+        Assert.assertSame(resolved, wrapper.getHeaders("de"));
+        Assert.assertEquals(2, headerCount.get());
+    }
+
+    @Test
+    public void testUninstalledPassThrough() throws Exception {
+        Bundle wrapper = cachedBundle();
+        Dictionary<String, String> headers = wrapper.getHeaders("de");
+        Assert.assertEquals(1, headerCount.get());
+
+        // Headers of an uninstalled bundle are neither cached nor taken from the cache
+        state.set(Bundle.UNINSTALLED);
+        Dictionary<String, String> uninstalled = wrapper.getHeaders("de");
+        Assert.assertNotSame(headers, uninstalled);
+        Assert.assertTrue(uninstalled instanceof Hashtable);
+        wrapper.getHeaders("de");
+        wrapper.getHeaders();
+        Assert.assertEquals(4, headerCount.get());
+    }
+
+    private Bundle cachedBundle() {
+        System.setProperty(PROP_HEADER_CACHE, "true");
+        try {
+            return new BundleInstrumentation().instrument(mockBundle());
+        } finally {
+            System.clearProperty(PROP_HEADER_CACHE);
+        }
+    }
+
+    private Bundle mockBundle() {
+        return OSGiMock.bundle(1).answers("getState", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                return state.get();
+            }
+        }).answers("getLastModified", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                return lastModified.get();
+            }
+        }).answers("getHeaders", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                headerCount.incrementAndGet();
+                Hashtable<String, String> headers = new Hashtable<String, String>();
+                headers.put("Bundle-Name", "Name " + (args != null ? args[0] : "default"));
+                return headers;
+            }
+        }).get();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.io.File;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jboss.osgi.metadata.OSGiMetaData;
+import org.jboss.osgi.spi.BundleInfo;
+import org.jboss.osgi.spi.SPIEvents;
+import org.jboss.osgi.spi.SPIEvents.Type;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.BundleException;
+
+/**
+ * Test the lazy {@link BundleInfo}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class LazyBundleInfoTestCase {
+
+    private final List<Type> events = new CopyOnWriteArrayList<Type>();
+
+    @Test
+    public void testDeferredRoot() throws Exception {
+        File dir = BundleArchives.createTempDir("lazybundle");
+        try {
+            File archive = BundleArchives.createBundle(new File(dir, "acme.jar"), "org.acme.lazy;singleton:=true", "1.2.0");
+            URL url = archive.toURI().toURL();
+            BundleInfo info = BundleInfo.createLazyBundleInfo(url);
+            Assert.assertEquals("org.acme.lazy", info.getSymbolicName());
+            Assert.assertEquals("1.2.0", info.getVersion().toString());
+
+            // The root URL and location do not mount the archive, which no longer exists
+            Assert.assertTrue(archive.delete());
+            Assert.assertEquals(url, info.getRootURL());
+            Assert.assertEquals(url.toExternalForm(), info.getLocation());
+        } finally {
+            BundleArchives.delete(dir);
+        }
+    }
+
+    @Test
+    public void testMetadataOnFirstAccess() throws Exception {
+        File dir = BundleArchives.createTempDir("lazybundle");
+        SPIEvents.setRecorder(new SPIEvents.Recorder() {
+            public void record(Type type, long startNanos, long durationNanos, String location, String symbolicName, boolean success) {
+                events.add(type);
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            URL url = BundleArchives.createBundle(new File(dir, "acme.jar"), "org.acme.lazy", "1.0.0").toURI().toURL();
+            final BundleInfo info = BundleInfo.createLazyBundleInfo(url);
+            events.clear();
+
+            List<Future<OSGiMetaData>> futures = new CopyOnWriteArrayList<Future<OSGiMetaData>>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new Callable<OSGiMetaData>() {
+                    public OSGiMetaData call() throws Exception {
+                        return info.getOSGiMetadata();
+                    }
+                }));
+            }
+            OSGiMetaData metadata = futures.get(0).get();
+            Assert.assertEquals("org.acme.lazy", metadata.getBundleSymbolicName());
+            for (Future<OSGiMetaData> future : futures) {
+                Assert.assertSame(metadata, future.get());
+            }
+            Assert.assertEquals(1, events.size());
+            Assert.assertEquals(Type.MANIFEST_LOAD, events.get(0));
+            info.close();
+        } finally {
+            executor.shutdownNow();
+            SPIEvents.setRecorder(null);
+            BundleArchives.delete(dir);
+        }
+    }
+
+    @Test
+    public void testNoManifest() throws Exception {
+        File dir = BundleArchives.createTempDir("lazybundle");
+        try {
+            URL url = BundleArchives.createArchive(new File(dir, "plain.jar"), null).toURI().toURL();
+            BundleInfo.createLazyBundleInfo(url);
+            Assert.fail("BundleException expected");
+        } catch (BundleException ex) {
+            // expected
+        } finally {
+            BundleArchives.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.jboss.osgi.spi.BundleInfo;
+import org.jboss.osgi.spi.util.ManifestHeaderScanner;
+import org.jboss.osgi.vfs.AbstractVFS;
+import org.jboss.osgi.vfs.VirtualFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link ManifestHeaderScanner}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class ManifestHeaderScannerTestCase {
+
+    @Test
+    public void testSelectedHeaders() throws Exception {
+        String manifest = "Manifest-Version: 1.0\r\nBundle-ManifestVersion: 2\r\nbundle-symbolicname: org.acme.foo;singleton:=true\r\nBundle-Version: 1.0.0\r\n\r\nName: foo\r\nBundle-Name: ignored\r\n";
+        Map<String, String> headers = ManifestHeaderScanner.scan(toStream(manifest), "Bundle-SymbolicName", "Bundle-Version", "Bundle-Name");
+        Assert.assertEquals(2, headers.size());
+        Assert.assertEquals("org.acme.foo;singleton:=true", headers.get("Bundle-SymbolicName"));
+        Assert.assertEquals("1.0.0", headers.get("Bundle-Version"));
+        Assert.assertNull(headers.get("Bundle-Name"));
+    }
+
+    @Test
+    public void testContinuationLines() throws Exception {
+        String manifest = "Manifest-Version: 1.0\nBundle-SymbolicName: org.acme.\n foo.bar\nBundle-Version: 2.0";
+        Map<String, String> headers = ManifestHeaderScanner.scan(toStream(manifest), "Bundle-SymbolicName", "Bundle-Version");
+        Assert.assertEquals("org.acme.foo.bar", headers.get("Bundle-SymbolicName"));
+        Assert.assertEquals("2.0", headers.get("Bundle-Version"));
+    }
+
+    @Test
+    public void testArchive() throws Exception {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.putValue("Manifest-Version", "1.0");
+        attributes.putValue("Bundle-SymbolicName", "org.acme.archive");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JarOutputStream output = new JarOutputStream(bytes, manifest);
+        output.close();
+
+        InputStream input = new ByteArrayInputStream(bytes.toByteArray());
+        Map<String, String> headers = ManifestHeaderScanner.scanArchive(input, "Bundle-SymbolicName");
+        Assert.assertEquals("org.acme.archive", headers.get("Bundle-SymbolicName"));
+
+        input = new ByteArrayInputStream(new ByteArrayOutputStream().toByteArray());
+        Assert.assertNull(ManifestHeaderScanner.scanArchive(input, "Bundle-SymbolicName"));
+    }
+
+    @Test
+    public void testBufferBoundaries() throws Exception {
+        // Lines and CRLF pairs that span the read buffer
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            value.append("org.acme.p").append(i).append(',');
+        }
+        StringBuilder manifest = new StringBuilder("Manifest-Version: 1.0\r\nImport-Package: ");
+        manifest.append(value.substring(0, 60));
+        for (int i = 60; i < value.length(); i += 69) {
+            manifest.append("\r\n ").append(value.substring(i, Math.min(i + 69, value.length())));
+        }
+        manifest.append("\r\nBundle-SymbolicName: org.acme.big\r\n");
+        for (int i = 0; i < 3; i++) {
+            Map<String, String> headers = ManifestHeaderScanner.scan(toStream(manifest.toString()), "Import-Package", "Bundle-SymbolicName");
+            Assert.assertEquals(value.toString(), headers.get("Import-Package"));
+            Assert.assertEquals("org.acme.big", headers.get("Bundle-SymbolicName"));
+        }
+        Map<String, String> headers = ManifestHeaderScanner.scan(toStream("Bundle-Version: 1.0\r"), "Bundle-Version");
+        Assert.assertEquals("1.0", headers.get("Bundle-Version"));
+    }
+
+    @Test
+    public void testValidVirtualFile() throws Exception {
+        File dir = BundleArchives.createTempDir("manifestscanner");
+        try {
+            File metaInf = new File(dir, "META-INF");
+            Assert.assertTrue(metaInf.mkdirs());
+            VirtualFile root = AbstractVFS.toVirtualFile(dir.toURI().toURL());
+            Assert.assertFalse(BundleInfo.isValidBundle(root));
+
+            OutputStream output = new FileOutputStream(new File(metaInf, "MANIFEST.MF"));
+            output.write("Manifest-Version: 1.0\nBundle-ManifestVersion: 2\nBundle-SymbolicName: org.acme.dir\n".getBytes("UTF-8"));
+            output.close();
+            Assert.assertTrue(BundleInfo.isValidBundle(root));
+            Assert.assertTrue(BundleInfo.isValidBundle(dir));
+        } finally {
+            BundleArchives.delete(dir);
+        }
+    }
+
+    private InputStream toStream(String manifest) throws Exception {
+        return new ByteArrayInputStream(manifest.getBytes("UTF-8"));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.osgi.framework.Bundle;
+
+/**
+ * A dynamic proxy mock for the OSGi interfaces used by the tests.
+ *
+ * Methods answer with the value or {@link Answer} registered for their name. Unregistered methods return null or the
+ * default value of a primitive return type, equals and hashCode use the proxy identity.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public final class OSGiMock<T> implements InvocationHandler {
+
+    /**
+     * Answers an invocation on the mock
+     */
+    public interface Answer {
+
+        Object answer(Object proxy, Object[] args) throws Throwable;
+    }
+
+    private final Class<T> type;
+    private final Map<String, Answer> answers = new ConcurrentHashMap<String, Answer>();
+    private T proxy;
+
+    private OSGiMock(Class<T> type) {
+        this.type = type;
+    }
+
+    public static <T> OSGiMock<T> mock(Class<T> type) {
+        return new OSGiMock<T>(type);
+    }
+
+    /**
+     * A bundle mock with the given id, a location of file:/bundle[id].jar and a symbolic name of bundle[id]
+     */
+    public static OSGiMock<Bundle> bundle(long bundleId) {
+        return mock(Bundle.class).returns("getBundleId", bundleId).returns("getLocation", "file:/bundle" + bundleId + ".jar")
+                .returns("getSymbolicName", "bundle" + bundleId).returns("getState", Bundle.INSTALLED);
+    }
+
+    public OSGiMock<T> returns(String method, final Object value) {
+        return answers(method, new Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                return value;
+            }
+        });
+    }
+
+    public OSGiMock<T> answers(String method, Answer answer) {
+        answers.put(method, answer);
+        return this;
+    }
+
+    public synchronized T get() {
+        if (proxy == null)
+            proxy = type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, this));
+        return proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        Object result = null;
+        Answer answer = answers.get(name);
+        if (answer != null)
+            result = answer.answer(proxy, args);
+        else if (name.equals("equals") && method.getParameterTypes().length == 1)
+            result = proxy == args[0];
+        else if (name.equals("hashCode") && method.getParameterTypes().length == 0)
+            result = System.identityHashCode(proxy);
+        else if (name.equals("toString") && method.getParameterTypes().length == 0)
+            result = type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+
+        Class<?> returnType = method.getReturnType();
+        // The default value of a primitive return type
+        if (result == null && returnType.isPrimitive() && returnType != void.class)
+            return Array.get(Array.newInstance(returnType, 1), 0);
+
+        return result;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jboss.osgi.spi.SPIEvents;
+import org.jboss.osgi.spi.SPIEvents.Type;
+import org.jboss.osgi.spi.framework.BundleInstrumentation;
+import org.jboss.osgi.spi.util.ServiceLoader;
+import org.jboss.test.osgi.spi.ServiceLoaderTestCase.TestService;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+/**
+ * Test the {@link SPIEvents}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class SPIEventsTestCase {
+
+    @Test
+    public void testRecordedEvents() throws Exception {
+        final List<String> events = new CopyOnWriteArrayList<String>();
+        SPIEvents.setRecorder(new SPIEvents.Recorder() {
+            public void record(Type type, long startNanos, long durationNanos, String location, String symbolicName, boolean success) {
+                Assert.assertTrue(durationNanos >= 0);
+                events.add(type + ":" + location + ":" + symbolicName + ":" + success);
+            }
+        });
+        try {
+            ServiceLoader.loadServices(TestService.class);
+            Bundle bundle = new BundleInstrumentation().instrument(mockBundle());
+            bundle.start();
+            try {
+                bundle.stop();
+                Assert.fail("IllegalStateException expected");
+            } catch (IllegalStateException ex) {
+                // expected
+            }
+        } finally {
+            SPIEvents.setRecorder(null);
+        }
+
+        Assert.assertEquals(3, events.size());
+        Assert.assertEquals("SERVICE_LOOKUP:" + TestService.class.getName() + ":null:true", events.get(0));
+        Assert.assertEquals("BUNDLE_START:file:/acme.jar:org.acme:true", events.get(1));
+        Assert.assertEquals("BUNDLE_STOP:file:/acme.jar:org.acme:false", events.get(2));
+
+        // No events without a recorder
+        ServiceLoader.loadServices(TestService.class);
+        Assert.assertEquals(3, events.size());
+    }
+
+    @Test
+    public void testFailingRecorder() throws Exception {
+        final List<String> events = new CopyOnWriteArrayList<String>();
+        SPIEvents.setRecorder(new SPIEvents.Recorder() {
+            public void record(Type type, long startNanos, long durationNanos, String location, String symbolicName, boolean success) {
+                events.add(type + ":" + success);
+                throw new IllegalStateException("record failed");
+            }
+        });
+        try {
+            Assert.assertEquals(1, ServiceLoader.loadServices(TestService.class).size());
+            Bundle bundle = new BundleInstrumentation().instrument(mockBundle());
+            bundle.start();
+            try {
+                bundle.stop();
+                Assert.fail("IllegalStateException expected");
+            } catch (IllegalStateException ex) {
+                Assert.assertEquals("stop failed", ex.getMessage());
+            }
+        } finally {
+            SPIEvents.setRecorder(null);
+        }
+
+        Assert.assertEquals(3, events.size());
+        Assert.assertEquals("BUNDLE_START:true", events.get(1));
+        Assert.assertEquals("BUNDLE_STOP:false", events.get(2));
+    }
+
+    private Bundle mockBundle() {
+        return OSGiMock.bundle(1).returns("getLocation", "file:/acme.jar").returns("getSymbolicName", "org.acme").answers("stop", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                throw new IllegalStateException("stop failed");
+            }
+        }).get();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.osgi.spi.util.ServiceLoader;
+import org.jboss.osgi.spi.util.ServiceLoader.ServiceSupplier;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link ServiceLoader}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class ServiceLoaderTestCase {
+
+    @Test
+    public void testLoadServices() {
+        List<TestService> services = ServiceLoader.loadServices(TestService.class);
+        Assert.assertEquals(1, services.size());
+        Assert.assertTrue(services.get(0) instanceof TestServiceImpl);
+        Assert.assertNotSame(services.get(0), ServiceLoader.loadService(TestService.class));
+    }
+
+    @Test
+    public void testLazySuppliers() {
+        int instances = TestServiceImpl.instances;
+        List<ServiceSupplier<TestService>> suppliers = ServiceLoader.loadServiceSuppliers(TestService.class);
+        Assert.assertEquals(3, suppliers.size());
+        Assert.assertEquals(TestServiceImpl.class.getName(), suppliers.get(0).getClassName());
+        Assert.assertEquals(instances, TestServiceImpl.instances);
+
+        Assert.assertNotNull(suppliers.get(0).get());
+        Assert.assertEquals(instances + 1, TestServiceImpl.instances);
+        try {
+            suppliers.get(1).get();
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInvalidate() {
+        ClassLoader loader = TestService.class.getClassLoader();
+        List<ServiceSupplier<TestService>> suppliers = ServiceLoader.loadServiceSuppliers(TestService.class);
+        ServiceLoader.invalidate(loader);
+        Assert.assertEquals(suppliers.size(), ServiceLoader.loadServiceSuppliers(TestService.class).size());
+    }
+
+    @Test
+    public void testServiceIndex() throws Exception {
+        File dirA = BundleArchives.createTempDir("indexA");
+        File dirB = BundleArchives.createTempDir("indexB");
+        try {
+            copyClass(TestService.class, dirA);
+            copyClass(NotAssignable.class, dirA);
+            writeResource(dirA, "META-INF/services/" + TestService.class.getName(), "org.acme.A1\n");
+            writeResource(dirB, ServiceLoader.SERVICE_INDEX, "# comment\n" + TestService.class.getName() + "=org.acme.B1\n"
+                    + NotAssignable.class.getName() + "=org.acme.B2,org.acme.B3\n");
+            writeResource(dirB, "META-INF/services/" + TestService.class.getName(), "org.acme.Ignored\n");
+            writeResource(dirB, "META-INF/services/" + NotAssignable.class.getName(), "org.acme.Ignored\n");
+
+            URLClassLoader loader = new URLClassLoader(new URL[] { dirA.toURI().toURL(), dirB.toURI().toURL() }, null);
+            try {
+                // The first services file wins, the index of another root does not apply to it
+                Class<?> serviceClass = loader.loadClass(TestService.class.getName());
+                Assert.assertSame(loader, serviceClass.getClassLoader());
+                Assert.assertEquals(Arrays.asList("org.acme.A1"), getClassNames(serviceClass));
+
+                // The index replaces the services file of its own root
+                Class<?> otherClass = loader.loadClass(NotAssignable.class.getName());
+                Assert.assertEquals(Arrays.asList("org.acme.B2", "org.acme.B3"), getClassNames(otherClass));
+            } finally {
+                ServiceLoader.invalidate(loader);
+            }
+        } finally {
+            BundleArchives.delete(dirA);
+            BundleArchives.delete(dirB);
+        }
+    }
+
+    private static List<String> getClassNames(Class<?> serviceClass) {
+        List<String> result = new ArrayList<String>();
+        for (ServiceSupplier<?> supplier : ServiceLoader.loadServiceSuppliers(serviceClass)) {
+            result.add(supplier.getClassName());
+        }
+        return result;
+    }
+
+    private static void copyClass(Class<?> clazz, File dir) throws Exception {
+        String path = clazz.getName().replace('.', '/') + ".class";
+        File file = new File(dir, path);
+        file.getParentFile().mkdirs();
+        InputStream in = clazz.getClassLoader().getResourceAsStream(path);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            byte[] buffer = new byte[1024];
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                out.write(buffer, 0, len);
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    private static void writeResource(File dir, String path, String content) throws Exception {
+        File file = new File(dir, path);
+        file.getParentFile().mkdirs();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    public interface TestService {
+    }
+
+    public static class TestServiceImpl implements TestService {
+
+        static int instances;
+
+        public TestServiceImpl() {
+            instances++;
+        }
+    }
+
+    public static class NotAssignable {
+    }
+}
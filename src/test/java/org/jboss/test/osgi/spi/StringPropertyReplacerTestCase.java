@@ -0,0 +1,207 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.osgi.spi.util.RecursivePropertyResolver;
+import org.jboss.osgi.spi.util.StringPropertyReplacer;
+import org.jboss.osgi.spi.util.StringPropertyReplacer.BatchPropertyProvider;
+import org.jboss.osgi.spi.util.StringPropertyReplacer.PropertyProvider;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link StringPropertyReplacer}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class StringPropertyReplacerTestCase {
+
+    @Test
+    public void testNoProperties() {
+        String input = "no properties $ here {}";
+        Assert.assertSame(input, StringPropertyReplacer.replaceProperties(input, provider()));
+    }
+
+    @Test
+    public void testSimpleProperties() {
+        PropertyProvider provider = provider("a", "A", "b", "B");
+        Assert.assertEquals("A", StringPropertyReplacer.replaceProperties("${a}", provider));
+        Assert.assertEquals("xAyBz", StringPropertyReplacer.replaceProperties("x${a}y${b}z", provider));
+        Assert.assertEquals("$A", StringPropertyReplacer.replaceProperties("$${a}", provider));
+    }
+
+    @Test
+    public void testUnresolvedProperties() {
+        PropertyProvider provider = provider("a", "A");
+        Assert.assertEquals("A${x}", StringPropertyReplacer.replaceProperties("${a}${x}", provider));
+        Assert.assertEquals("A${}", StringPropertyReplacer.replaceProperties("${a}${}", provider));
+        Assert.assertEquals("A${b", StringPropertyReplacer.replaceProperties("${a}${b", provider));
+    }
+
+    @Test
+    public void testDefaultAndCompositeKeys() {
+        PropertyProvider provider = provider("a", "A", "b", "B");
+        Assert.assertEquals("def", StringPropertyReplacer.replaceProperties("${x:def}", provider));
+        Assert.assertEquals("B", StringPropertyReplacer.replaceProperties("${x,b}", provider));
+        Assert.assertEquals("A", StringPropertyReplacer.replaceProperties("${a,b:def}", provider));
+        Assert.assertEquals("def", StringPropertyReplacer.replaceProperties("${x,y:def}", provider));
+    }
+
+    @Test
+    public void testDefaultLookupOrder() {
+        // The full key comes first
+        PropertyProvider provider = provider("a:def", "full", "a", "A", "a,b:def", "composite", "b", "B");
+        Assert.assertEquals("full", StringPropertyReplacer.replaceProperties("${a:def}", provider));
+        Assert.assertEquals("composite", StringPropertyReplacer.replaceProperties("${a,b:def}", provider));
+
+        // Then the parts of a composite key, then the default
+        provider = provider("a", "A", "b", "B");
+        Assert.assertEquals("B", StringPropertyReplacer.replaceProperties("${x,b:def}", provider));
+        Assert.assertEquals("def", StringPropertyReplacer.replaceProperties("${a:def}", provider));
+    }
+
+    @Test
+    public void testSeparatorAliases() {
+        PropertyProvider provider = provider();
+        Assert.assertEquals("a" + File.separator + "b", StringPropertyReplacer.replaceProperties("a${/}b", provider));
+        Assert.assertEquals("a" + File.pathSeparator + "b", StringPropertyReplacer.replaceProperties("a${:}b", provider));
+    }
+
+    @Test
+    public void testRecursiveProperties() {
+        PropertyProvider provider = provider("a", "${b}/a", "b", "${c}/b", "c", "C", "env", "prod", "prod.host", "example.com");
+        Assert.assertEquals("${b}/a", StringPropertyReplacer.replaceProperties("${a}", provider));
+        Assert.assertEquals("C/b/a", StringPropertyReplacer.replacePropertiesRecursive("${a}", provider));
+        Assert.assertEquals("C/b", StringPropertyReplacer.replacePropertiesRecursive("${x:${b}}", provider));
+        Assert.assertEquals("example.com", StringPropertyReplacer.replacePropertiesRecursive("${${env}.host}", provider));
+        Assert.assertEquals("${x}", StringPropertyReplacer.replacePropertiesRecursive("${x}", provider));
+        Assert.assertEquals("C${y", StringPropertyReplacer.replacePropertiesRecursive("${c}${y", provider));
+    }
+
+    @Test
+    public void testRecursiveMemoization() {
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        final PropertyProvider delegate = provider("a", "${b}${b}", "b", "B");
+        RecursivePropertyResolver resolver = new RecursivePropertyResolver(new PropertyProvider() {
+            @Override
+            public String getProperty(String key) {
+                Integer count = counts.get(key);
+                counts.put(key, count != null ? count + 1 : 1);
+                return delegate.getProperty(key);
+            }
+        });
+        Assert.assertEquals("BB-BB", resolver.resolve("${a}-${a}"));
+        Assert.assertEquals(Integer.valueOf(1), counts.get("a"));
+        Assert.assertEquals(Integer.valueOf(1), counts.get("b"));
+    }
+
+    @Test
+    public void testCyclicProperties() {
+        PropertyProvider provider = provider("a", "${b}", "b", "x${a}");
+        try {
+            StringPropertyReplacer.replacePropertiesRecursive("${a}", provider);
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBatchProperties() {
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        final PropertyProvider delegate = provider("a", "A", "b", "B");
+        BatchPropertyProvider provider = new BatchPropertyProvider() {
+            @Override
+            public String getProperty(String key) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Map<String, String> getProperties(Set<String> keys) {
+                Map<String, String> result = new HashMap<String, String>();
+                for (String key : keys) {
+                    Integer count = counts.get(key);
+                    counts.put(key, count != null ? count + 1 : 1);
+                    result.put(key, delegate.getProperty(key));
+                }
+                return result;
+            }
+        };
+
+        Map<String, String> values = new HashMap<String, String>();
+        values.put("x", "${a}-${b}");
+        values.put("y", "${a}/${a}");
+        values.put("z", "plain");
+        Map<String, String> result = StringPropertyReplacer.replaceProperties(values, provider);
+        Assert.assertEquals("A-B", result.get("x"));
+        Assert.assertEquals("A/A", result.get("y"));
+        Assert.assertEquals("plain", result.get("z"));
+        Assert.assertEquals(Integer.valueOf(1), counts.get("a"));
+        Assert.assertEquals(Integer.valueOf(1), counts.get("b"));
+    }
+
+    @Test
+    public void testTemplateCacheEviction() throws Exception {
+        final PropertyProvider provider = provider("a", "A");
+        Thread[] threads = new Thread[4];
+        final Throwable[] failure = new Throwable[1];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < 2000; i++) {
+                            String suffix = String.valueOf((i * 7 + offset) % 1500);
+                            Assert.assertEquals("A-" + suffix, StringPropertyReplacer.replaceProperties("${a}-" + suffix, provider));
+                        }
+                    } catch (Throwable th) {
+                        failure[0] = th;
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(String.valueOf(failure[0]), failure[0]);
+    }
+
+    private PropertyProvider provider(String... keyValues) {
+        final Map<String, String> props = new HashMap<String, String>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            props.put(keyValues[i], keyValues[i + 1]);
+        }
+        return new PropertyProvider() {
+            @Override
+            public String getProperty(String key) {
+                return props.get(key);
+            }
+        };
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Map;
+
+import org.jboss.osgi.spi.util.UnmodifiableDictionary;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link UnmodifiableDictionary}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class UnmodifiableDictionaryTestCase {
+
+    @Test
+    public void testLookup() throws Exception {
+        Hashtable<String, String> props = new Hashtable<String, String>();
+        for (int i = 0; i < 100; i++) {
+            props.put("key" + i, "value" + i);
+        }
+        UnmodifiableDictionary<String, String> dict = new UnmodifiableDictionary<String, String>(props);
+        Assert.assertEquals(100, dict.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("value" + i, dict.get("key" + i));
+        }
+        Assert.assertNull(dict.get("other"));
+        Assert.assertEquals(props.hashCode(), dict.hashCode());
+        Assert.assertEquals(props, dict.asMap());
+        Assert.assertTrue(dict.equals(props));
+        try {
+            dict.put("foo", "bar");
+            Assert.fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWrap() throws Exception {
+        Hashtable<String, String> props = new Hashtable<String, String>();
+        props.put("foo", "bar");
+        UnmodifiableDictionary<String, String> dict = UnmodifiableDictionary.wrap(props);
+        Assert.assertSame(dict, UnmodifiableDictionary.wrap(dict));
+        Dictionary<String, String> copy = new UnmodifiableDictionary<String, String>(dict);
+        Assert.assertEquals(dict, copy);
+
+        Map<String, String> map = dict.asMap();
+        Assert.assertEquals("bar", map.get("foo"));
+        try {
+            map.put("foo", "baz");
+            Assert.fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        Hashtable<String, String> props = new Hashtable<String, String>();
+        props.put("foo", "bar");
+        UnmodifiableDictionary<String, String> dict = new UnmodifiableDictionary<String, String>(props);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(baos);
+        out.writeObject(dict);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        Object result = in.readObject();
+        Assert.assertEquals(dict, result);
+        Assert.assertEquals(dict.hashCode(), result.hashCode());
+        Assert.assertEquals("bar", ((Dictionary<?, ?>) result).get("foo"));
+    }
+
+    @Test
+    public void testNullEntries() throws Exception {
+        Dictionary<String, String> props = new Dictionary<String, String>() {
+
+            @Override
+            public int size() {
+                return 1;
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return false;
+            }
+
+            @Override
+            public Enumeration<String> keys() {
+                return Collections.enumeration(Collections.singleton("foo"));
+            }
+
+            @Override
+            public Enumeration<String> elements() {
+                return Collections.enumeration(Collections.<String> singleton(null));
+            }
+
+            @Override
+            public String get(Object key) {
+                return null;
+            }
+
+            @Override
+            public String put(String key, String value) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String remove(Object key) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        try {
+            new UnmodifiableDictionary<String, String>(props);
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
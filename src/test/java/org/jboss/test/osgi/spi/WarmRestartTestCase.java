@@ -0,0 +1,220 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.osgi.spi.framework.PropertiesBootstrapProvider;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.wiring.FrameworkWiring;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * Test the warm restart of the auto bundles.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class WarmRestartTestCase {
+
+    // The bundles in the mock framework storage
+    private final List<MockBundle> storage = new ArrayList<MockBundle>();
+    private File dataDir;
+    private int installs;
+    // The bundle collections passed to FrameworkWiring.refreshBundles
+    private final List<Collection<Bundle>> refreshes = new ArrayList<Collection<Bundle>>();
+
+    @Test
+    public void testWarmRestart() throws Exception {
+        dataDir = File.createTempFile("warmrestart", "");
+        dataDir.delete();
+        dataDir.mkdirs();
+        File bundleA = new File(dataDir, "a.jar");
+        File bundleB = new File(dataDir, "b.jar");
+        File bundleC = new File(dataDir, "c.jar");
+        for (File file : new File[] { bundleA, bundleB, bundleC }) {
+            file.createNewFile();
+            file.setLastModified(1000000L);
+        }
+        try {
+            // Cold boot installs everything
+            boot(bundleA, bundleB);
+            Assert.assertEquals(2, installs);
+            Assert.assertEquals(0, refreshes.size());
+
+            // Unchanged a is reused, b is removed and c is new
+            Bundle removed = getBundle(bundleB).bundle;
+            boot(bundleA, bundleC);
+            Assert.assertEquals(3, installs);
+            Assert.assertEquals(0, getBundle(bundleA).updates);
+            Assert.assertNull(getBundle(bundleB));
+            Assert.assertNotNull(getBundle(bundleC));
+            Assert.assertEquals(1, refreshes.size());
+            Assert.assertEquals(Arrays.asList(removed), refreshes.get(0));
+
+            // Modified a is updated
+            bundleA.setLastModified(2000000L);
+            boot(bundleA, bundleC);
+            Assert.assertEquals(3, installs);
+            Assert.assertEquals(1, getBundle(bundleA).updates);
+            Assert.assertEquals(2, refreshes.size());
+            Assert.assertEquals(Arrays.asList(getBundle(bundleA).bundle), refreshes.get(1));
+
+            // Unchanged bundles need no refresh
+            boot(bundleA, bundleC);
+            Assert.assertEquals(1, getBundle(bundleA).updates);
+            Assert.assertEquals(2, refreshes.size());
+
+            // A replaced a that kept its modification time is updated
+            OutputStream output = new FileOutputStream(bundleA);
+            output.write(new byte[] { 1, 2, 3 });
+            output.close();
+            bundleA.setLastModified(2000000L);
+            boot(bundleA, bundleC);
+            Assert.assertEquals(2, getBundle(bundleA).updates);
+            Assert.assertEquals(3, refreshes.size());
+        } finally {
+            for (File file : dataDir.listFiles()) {
+                file.delete();
+            }
+            dataDir.delete();
+        }
+    }
+
+    private void boot(File... bundles) throws Exception {
+        StringBuilder autoInstall = new StringBuilder();
+        for (File file : bundles) {
+            autoInstall.append(autoInstall.length() > 0 ? "," : "").append(file.toURI().toURL());
+        }
+        String config = PropertiesBootstrapProvider.PROP_OSGI_FRAMEWORK_AUTO_INSTALL + "=" + autoInstall + "\n"
+                + PropertiesBootstrapProvider.PROP_OSGI_FRAMEWORK_WARM_RESTART + "=true\n";
+
+        PropertiesBootstrapProvider provider = new PropertiesBootstrapProvider() {
+            @Override
+            protected Framework createFramework(Map<String, String> properties) {
+                return OSGiMock.mock(Framework.class).returns("getBundleContext", mockContext()).returns("getState", Bundle.ACTIVE).get();
+            }
+        };
+        provider.configure(new ByteArrayInputStream(config.getBytes("UTF-8")));
+        provider.getFramework().start();
+    }
+
+    private MockBundle getBundle(File file) throws Exception {
+        String location = file.toURI().toURL().toString();
+        for (MockBundle aux : storage) {
+            if (aux.location.equals(location))
+                return aux;
+        }
+        return null;
+    }
+
+    private BundleContext mockContext() {
+        return OSGiMock.mock(BundleContext.class).answers("getBundles", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                Bundle[] bundles = new Bundle[storage.size()];
+                for (int i = 0; i < bundles.length; i++) {
+                    bundles[i] = storage.get(i).bundle;
+                }
+                return bundles;
+            }
+        }).answers("getDataFile", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                return new File(dataDir, (String) args[0]);
+            }
+        }).answers("getBundle", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                return ((Long) args[0]) == 0 ? systemBundle() : null;
+            }
+        }).answers("installBundle", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                installs++;
+                MockBundle mock = new MockBundle(installs, (String) args[0]);
+                storage.add(mock);
+                return mock.bundle;
+            }
+        }).get();
+    }
+
+    private Bundle systemBundle() {
+        final Bundle[] systemBundle = new Bundle[1];
+        final FrameworkWiring wiring = OSGiMock.mock(FrameworkWiring.class).answers("refreshBundles", new OSGiMock.Answer() {
+            @SuppressWarnings("unchecked")
+            public Object answer(Object proxy, Object[] args) {
+                refreshes.add(new ArrayList<Bundle>((Collection<Bundle>) args[0]));
+                for (FrameworkListener listener : (FrameworkListener[]) args[1]) {
+                    listener.frameworkEvent(new FrameworkEvent(FrameworkEvent.PACKAGES_REFRESHED, systemBundle[0], null));
+                }
+                return null;
+            }
+        }).get();
+        systemBundle[0] = OSGiMock.bundle(0).answers("adapt", new OSGiMock.Answer() {
+            public Object answer(Object proxy, Object[] args) {
+                return args[0] == FrameworkWiring.class ? wiring : null;
+            }
+        }).get();
+        return systemBundle[0];
+    }
+
+    class MockBundle {
+
+        final Bundle bundle;
+        final String location;
+        long lastModified = System.currentTimeMillis();
+        int updates;
+
+        MockBundle(long bundleId, String location) {
+            this.location = location;
+            this.bundle = OSGiMock.bundle(bundleId).returns("getLocation", location).answers("getLastModified", new OSGiMock.Answer() {
+                public Object answer(Object proxy, Object[] args) {
+                    return lastModified;
+                }
+            }).answers("update", new OSGiMock.Answer() {
+                public Object answer(Object proxy, Object[] args) throws IOException {
+                    ((InputStream) args[0]).close();
+                    updates++;
+                    lastModified = System.currentTimeMillis();
+                    return null;
+                }
+            }).answers("uninstall", new OSGiMock.Answer() {
+                public Object answer(Object proxy, Object[] args) {
+                    storage.remove(MockBundle.this);
+                    return null;
+                }
+            }).get();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.spi.tools;
+
+import static org.jboss.osgi.spi.SPIMessages.MESSAGES;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.osgi.spi.util.ServiceLoader;
+
+/**
+ * Generates the service provider index that is read by {@link ServiceLoader}.
+ *
+ * The generator reads all META-INF/services files of a classes directory and writes them to
+ * a single {@link ServiceLoader#SERVICE_INDEX} resource. At runtime the index is read once per
+ * class loader, instead of one META-INF/services lookup per service.
+ *
+ * Run it after compilation of the module that ships the services, for example with the exec-maven-plugin
+ *
+ * <pre>
+ *    &lt;plugin&gt;
+ *      &lt;groupId&gt;org.codehaus.mojo&lt;/groupId&gt;
+ *      &lt;artifactId&gt;exec-maven-plugin&lt;/artifactId&gt;
+ *      &lt;executions&gt;
+ *        &lt;execution&gt;
+ *          &lt;phase&gt;process-classes&lt;/phase&gt;
+ *          &lt;goals&gt;&lt;goal&gt;java&lt;/goal&gt;&lt;/goals&gt;
+ *          &lt;configuration&gt;
+ *            &lt;includeProjectDependencies&gt;false&lt;/includeProjectDependencies&gt;
+ *            &lt;includePluginDependencies&gt;true&lt;/includePluginDependencies&gt;
+ *            &lt;mainClass&gt;org.jboss.osgi.spi.tools.ServiceIndexGenerator&lt;/mainClass&gt;
+ *            &lt;arguments&gt;&lt;argument&gt;${project.build.outputDirectory}&lt;/argument&gt;&lt;/arguments&gt;
+ *          &lt;/configuration&gt;
+ *        &lt;/execution&gt;
+ *      &lt;/executions&gt;
+ *      &lt;dependencies&gt;
+ *        &lt;dependency&gt;
+ *          &lt;groupId&gt;org.jboss.osgi.spi&lt;/groupId&gt;
+ *          &lt;artifactId&gt;jbosgi-spi-tools&lt;/artifactId&gt;
+ *          &lt;version&gt;${version.jboss.osgi.spi}&lt;/version&gt;
+ *        &lt;/dependency&gt;
+ *      &lt;/dependencies&gt;
+ *    &lt;/plugin&gt;
+ * </pre>
+ *
+ * The index only replaces the META-INF/services files of the classes directory it was generated for.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public final class ServiceIndexGenerator {
+
+    // Hide ctor
+    private ServiceIndexGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1)
+            throw MESSAGES.illegalArgumentUsage(ServiceIndexGenerator.class.getName() + " <classes directory>");
+
+        generateIndex(new File(args[0]));
+    }
+
+    /**
+     * Generate the service index for the given classes directory.
+     *
+     * @return The index file or null if there are no META-INF/services files
+     */
+    public static File generateIndex(File classesDir) throws IOException {
+        if (classesDir == null)
+            throw MESSAGES.illegalArgumentNull("classesDir");
+
+        File[] serviceFiles = new File(classesDir, "META-INF/services").listFiles();
+        if (serviceFiles == null || serviceFiles.length == 0)
+            return null;
+
+        // Sort for a reproducible index
+        Arrays.sort(serviceFiles);
+
+        File indexFile = new File(classesDir, ServiceLoader.SERVICE_INDEX);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(indexFile), "UTF-8");
+        try {
+            writer.write("# Generated by " + ServiceIndexGenerator.class.getName() + "\n");
+            for (File serviceFile : serviceFiles) {
+                if (serviceFile.isFile() == false)
+                    continue;
+
+                List<String> classNames = readClassNames(serviceFile);
+                if (classNames.isEmpty())
+                    continue;
+
+                StringBuilder line = new StringBuilder(serviceFile.getName()).append('=');
+                for (int i = 0; i < classNames.size(); i++) {
+                    if (i > 0)
+                        line.append(',');
+                    line.append(classNames.get(i));
+                }
+                writer.write(line.append('\n').toString());
+            }
+        } finally {
+            writer.close();
+        }
+        return indexFile;
+    }
+
+    private static List<String> readClassNames(File serviceFile) throws IOException {
+        List<String> classNames = new ArrayList<String>();
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(serviceFile), "UTF-8"));
+        try {
+            String implClassName = br.readLine();
+            while (implClassName != null) {
+                int hashIndex = implClassName.indexOf("#");
+                if (hashIndex >= 0)
+                    implClassName = implClassName.substring(0, hashIndex);
+
+                implClassName = implClassName.trim();
+
+                if (implClassName.length() > 0)
+                    classNames.add(implClassName);
+
+                implClassName = br.readLine();
+            }
+        } finally {
+            br.close();
+        }
+        return classNames;
+    }
+}
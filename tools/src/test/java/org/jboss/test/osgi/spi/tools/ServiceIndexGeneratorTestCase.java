@@ -0,0 +1,82 @@
+/*
+ * #%L
+ * JBossOSGi SPI
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.test.osgi.spi.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.jboss.osgi.spi.tools.ServiceIndexGenerator;
+import org.jboss.osgi.spi.util.ServiceLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link ServiceIndexGenerator}.
+ *
+ * @author thomas.diesler@jboss.com
+ * @since 17-Oct-2026
+ */
+public class ServiceIndexGeneratorTestCase {
+
+    @Test
+    public void testGenerateIndex() throws Exception {
+        File classesDir = File.createTempFile("classes", "");
+        classesDir.delete();
+        File servicesDir = new File(classesDir, "META-INF/services");
+        servicesDir.mkdirs();
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(new File(servicesDir, "org.acme.Service")), "UTF-8");
+            writer.write("# comment\norg.acme.ServiceA\n\norg.acme.ServiceB # trailing\n");
+            writer.close();
+
+            File indexFile = ServiceIndexGenerator.generateIndex(classesDir);
+            Assert.assertEquals(new File(classesDir, ServiceLoader.SERVICE_INDEX), indexFile);
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), "UTF-8"));
+            Assert.assertTrue(reader.readLine().startsWith("#"));
+            Assert.assertEquals("org.acme.Service=org.acme.ServiceA,org.acme.ServiceB", reader.readLine());
+            Assert.assertNull(reader.readLine());
+            reader.close();
+        } finally {
+            new File(servicesDir, "org.acme.Service").delete();
+            new File(classesDir, ServiceLoader.SERVICE_INDEX).delete();
+            servicesDir.delete();
+            servicesDir.getParentFile().delete();
+            classesDir.delete();
+        }
+    }
+
+    @Test
+    public void testGeneratorUsage() throws Exception {
+        try {
+            ServiceIndexGenerator.main(new String[0]);
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}